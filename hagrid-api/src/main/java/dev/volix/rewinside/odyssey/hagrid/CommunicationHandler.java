@@ -1,6 +1,7 @@
 package dev.volix.rewinside.odyssey.hagrid;
 
 import dev.volix.rewinside.odyssey.hagrid.listener.HagridListenerRegistry;
+import dev.volix.rewinside.odyssey.hagrid.listener.HagridRequestRegistry;
 import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopicRegistry;
 
 /**
@@ -13,6 +14,6 @@ import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopicRegistry;
  *
  * @author Tobias Büser
  */
-public interface CommunicationHandler extends HagridTopicRegistry, HagridListenerRegistry {
+public interface CommunicationHandler extends HagridTopicRegistry, HagridListenerRegistry, HagridRequestRegistry {
 
 }
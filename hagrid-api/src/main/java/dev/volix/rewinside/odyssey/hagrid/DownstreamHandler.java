@@ -20,9 +20,16 @@ public interface DownstreamHandler extends Connectible {
      * This method is also used by the subscriber though.
      *
      * @param topic  The topic that this packet got received with.
+     * @param key    The key that this packet got sent with. Packets with the same
+     *               topic and key are passed on in the order they got received,
+     *               can be {@code null}.
      * @param packet The packet itself
      */
-    void receive(String topic, HagridPacket<?> packet);
+    void receive(String topic, String key, HagridPacket<?> packet);
+
+    default void receive(final String topic, final HagridPacket<?> packet) {
+        this.receive(topic, null, packet);
+    }
 
     /**
      * Adds given topic to a new {@link HagridSubscriber} so that
@@ -41,9 +48,10 @@ public interface DownstreamHandler extends Connectible {
      * Adds given topic to a new or already existing subscriber.
      * <p>
      * If the topic is set to be {@link TopicProperties#shouldRunInParallel()}, then
-     * it will try to create a new subscriber for this topic.
-     * Otherwise a subscriber with the least amount of registered
-     * topics will be chosen.
+     * it will try to create a new subscriber for this topic, as long as the maximum
+     * amount of subscribers is not reached.
+     * Otherwise the subscriber that currently receives the least
+     * messages and bytes per second will be chosen.
      *
      * @param topic The topic to be registered
      *
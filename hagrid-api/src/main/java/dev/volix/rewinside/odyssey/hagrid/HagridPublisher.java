@@ -1,6 +1,8 @@
 package dev.volix.rewinside.odyssey.hagrid;
 
 import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The publisher is the last instance of the {@link UpstreamHandler}
@@ -32,12 +34,63 @@ public interface HagridPublisher {
      *               okay to just leave it empty.
      * @param packet The backend packet instance
      *
+     * @return A future that completes as soon as the pub/sub system acknowledged
+     * the packet or completes exceptionally if the push failed.
+     * The implementation should not block until then, so that multiple
+     * packets can be in flight at the same time. It may complete the future
+     * on its I/O thread, as the {@link UpstreamHandler} does not hand it to the caller.
+     *
      * @see #push(String, Packet)
      */
-    void push(String topic, String key, Packet packet);
+    CompletableFuture<Void> push(String topic, String key, Packet packet);
+
+    default CompletableFuture<Void> push(final String topic, final Packet packet) {
+        return this.push(topic, "", packet);
+    }
+
+    /**
+     * Pushes multiple packets at once.
+     * <p>
+     * Defaults to pushing every packet on its own, but implementations
+     * should override this, if they can handle a batch more efficiently.
+     *
+     * @param records The packets with their topic and key
+     *
+     * @return A future that completes as soon as all packets got acknowledged
+     * or completes exceptionally if any push failed.
+     */
+    default CompletableFuture<Void> pushAll(final List<Record> records) {
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < futures.length; i++) {
+            final Record record = records.get(i);
+            futures[i] = this.push(record.getTopic(), record.getKey(), record.getPacket());
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    class Record {
+
+        private final String topic;
+        private final String key;
+        private final Packet packet;
+
+        public Record(final String topic, final String key, final Packet packet) {
+            this.topic = topic;
+            this.key = key;
+            this.packet = packet;
+        }
+
+        public String getTopic() {
+            return this.topic;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
 
-    default void push(final String topic, final Packet packet) {
-        this.push(topic, "", packet);
+        public Packet getPacket() {
+            return this.packet;
+        }
     }
 
 }
@@ -3,6 +3,9 @@ package dev.volix.rewinside.odyssey.hagrid;
 import dev.volix.lib.grape.Service;
 import dev.volix.rewinside.odyssey.hagrid.config.PropertiesConfig;
 import dev.volix.rewinside.odyssey.hagrid.exception.HagridConnectionException;
+import dev.volix.rewinside.odyssey.hagrid.id.PacketIdGenerator;
+import dev.volix.rewinside.odyssey.hagrid.id.TimeOrderedPacketIdGenerator;
+import dev.volix.rewinside.odyssey.hagrid.metrics.HagridMetrics;
 import org.apache.logging.log4j.Logger;
 
 /**
@@ -77,6 +80,14 @@ public interface HagridService extends Service {
         this.connection().disconnect();
     }
 
+    /**
+     * Disconnects and stops all threads of this service. Unlike {@link #disconnect()},
+     * the service can not be connected again afterwards.
+     */
+    default void shutdown() {
+        this.disconnect();
+    }
+
     /**
      * @return The handler for sending a packet.
      */
@@ -92,6 +103,20 @@ public interface HagridService extends Service {
      */
     CommunicationHandler communication();
 
+    /**
+     * @return The generator for the ids of the packets we send.
+     */
+    default PacketIdGenerator idGenerator() {
+        return TimeOrderedPacketIdGenerator.getDefault();
+    }
+
+    /**
+     * @return The metrics to record what Hagrid is doing. Does not record anything at default.
+     */
+    default HagridMetrics metrics() {
+        return HagridMetrics.NOOP;
+    }
+
     /**
      * This is a really important method as it ensures that Hagrid is down for a blowjob.
      * <p>
@@ -69,9 +69,108 @@ public interface HagridSubscriber {
      */
     List<Record> poll();
 
+    /**
+     * Just like {@link #poll()}, but passes every record to the handler instead of
+     * collecting them into a list, so that implementations can hand over the
+     * records without allocating anything per record.
+     * <p>
+     * Defaults to iterate the list of {@link #poll()}.
+     *
+     * @param handler The handler, called on the polling thread
+     *
+     * @return The amount of records that got passed to the handler.
+     */
+    default int poll(final RecordHandler handler) {
+        final List<Record> records = this.poll();
+        for (final Record record : records) {
+            handler.handle(record.getTopic(), record.getPartition(), record.getOffset(),
+                record.getKey(), record.getPacket(), record.getTimestamp());
+        }
+        return records.size();
+    }
+
+    /**
+     * Marks a polled record as handled, which means that the listeners of its
+     * packet have been executed or that the packet got skipped.
+     * <p>
+     * Subscribers that commit the offsets of a partition only up to the records that got
+     * handled use this, so that a record whose listeners did not run is received again
+     * after a restart. Others ignore it, which is the default.
+     * <p>
+     * Can be called from any thread.
+     *
+     * @param topic     The concrete topic of the record
+     * @param partition The partition of the record
+     * @param offset    The offset of the record
+     */
+    default void acknowledge(final String topic, final int partition, final long offset) {
+    }
+
+    /**
+     * Pauses fetching new records, e.g. when the received packets can not be
+     * handled fast enough. {@link #poll()} still has to be called, but
+     * it will not return any new records until {@link #resume()} is called.
+     * <p>
+     * Must be called from the same thread that calls {@link #poll()}.
+     * Defaults to do nothing, if the implementation does not support it.
+     */
+    default void pause() {
+    }
+
+    /**
+     * Resumes fetching new records after {@link #pause()}.
+     * Topics paused by {@link #pause(String)} stay paused.
+     * <p>
+     * Must be called from the same thread that calls {@link #poll()}.
+     */
+    default void resume() {
+    }
+
+    /**
+     * Pauses fetching new records of a single topic, e.g. when the listeners of that
+     * topic can not keep up, while the records of all other topics are still fetched.
+     * <p>
+     * Must be called from the same thread that calls {@link #poll()}.
+     * Defaults to do nothing, if the implementation does not support it.
+     *
+     * @param topic The concrete topic name
+     */
+    default void pause(final String topic) {
+    }
+
+    /**
+     * Resumes fetching new records of a topic after {@link #pause(String)},
+     * unless the whole subscriber is paused.
+     * <p>
+     * Must be called from the same thread that calls {@link #poll()}.
+     *
+     * @param topic The concrete topic name
+     */
+    default void resume(final String topic) {
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+
+        /**
+         * @param topic     The concrete topic of the record
+         * @param partition The partition of the record or {@code -1}, if unknown
+         * @param offset    The offset of the record in its partition or {@code -1}, if unknown
+         * @param key       The key the packet got sent with, can be {@code null}
+         * @param packet    The packet
+         * @param timestamp When the record got added to the message broker
+         */
+        void handle(String topic, int partition, long offset, String key, Packet packet, long timestamp);
+
+    }
+
     class Record {
 
         private final String topic;
+        /**
+         * The key the packet got sent with, can be {@code null}.
+         */
+        private final String key;
         private final Packet packet;
 
         /**
@@ -80,16 +179,39 @@ public interface HagridSubscriber {
          */
         private final long timestamp;
 
-        public Record(final String topic, final Packet packet, final long timestamp) {
+        /**
+         * Where the record is stored in the message broker,
+         * {@code -1} if the subscriber does not know.
+         */
+        private final int partition;
+        private final long offset;
+
+        public Record(final String topic, final int partition, final long offset,
+                      final String key, final Packet packet, final long timestamp) {
             this.topic = topic;
+            this.partition = partition;
+            this.offset = offset;
+            this.key = key;
             this.packet = packet;
             this.timestamp = timestamp;
         }
 
+        public Record(final String topic, final String key, final Packet packet, final long timestamp) {
+            this(topic, -1, -1, key, packet, timestamp);
+        }
+
+        public Record(final String topic, final Packet packet, final long timestamp) {
+            this(topic, null, packet, timestamp);
+        }
+
         public String getTopic() {
             return this.topic;
         }
 
+        public String getKey() {
+            return this.key;
+        }
+
         public Packet getPacket() {
             return this.packet;
         }
@@ -97,6 +219,14 @@ public interface HagridSubscriber {
         public long getTimestamp() {
             return this.timestamp;
         }
+
+        public int getPartition() {
+            return this.partition;
+        }
+
+        public long getOffset() {
+            return this.offset;
+        }
     }
 
 }
@@ -0,0 +1,40 @@
+package dev.volix.rewinside.odyssey.hagrid;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects multiple packets to send them at once,
+ * see {@link UpstreamHandler#sendAll(String, java.util.Collection)}.
+ *
+ * @author Tobias Büser
+ */
+public interface PacketBatch {
+
+    /**
+     * Adds a packet with given payload to the topic of the {@link PacketWizard}.
+     */
+    PacketBatch add(final Object payload);
+
+    /**
+     * Adds a packet with given payload to given topic.
+     */
+    PacketBatch add(final String topic, final Object payload);
+
+    /**
+     * Adds an already built packet. It has to have a topic.
+     */
+    PacketBatch add(final HagridPacket<?> packet);
+
+    /**
+     * @return The amount of packets added so far.
+     */
+    int size();
+
+    /**
+     * Sends all packets of the batch.
+     *
+     * @return A future that completes as soon as every packet got acknowledged.
+     */
+    CompletableFuture<Void> send();
+
+}
@@ -73,10 +73,21 @@ public interface PacketWizard {
      */
     PacketWizard timeout(final int timeoutInSeconds);
 
+    /**
+     * Starts a batch of packets, which are sent all at once with {@link PacketBatch#send()}.
+     * <p>
+     * The topic, key and status that are set on this wizard are used
+     * as defaults for every packet added to the batch.
+     */
+    PacketBatch batch();
+
     /**
      * Just sends the packet. No waiting. No nothing.
+     *
+     * @return A future that completes as soon as the packet got acknowledged.
+     * It can be ignored, if that is not of interest.
      */
-    void send();
+    CompletableFuture<Void> send();
 
     /**
      * Sends the packet and waits for a response.
@@ -2,6 +2,8 @@ package dev.volix.rewinside.odyssey.hagrid;
 
 import dev.volix.rewinside.odyssey.hagrid.exception.HagridStreamException;
 import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents the handler that handles sending packets down the line.
@@ -14,6 +16,14 @@ public interface UpstreamHandler extends Connectible {
 
     /**
      * Sends a packet via a publisher to the external pub/sub service.
+     * <p>
+     * This method does not wait for the pub/sub service to acknowledge
+     * the packet. If you need to, just wait for the returned future.
+     * <p>
+     * The {@link dev.volix.rewinside.odyssey.hagrid.listener.Direction#UPSTREAM} listeners are not
+     * executed by this method, but as soon as the packet got acknowledged, on one of the upstream
+     * threads of Hagrid. The future is completed on the same thread right after them and never on the
+     * I/O thread of the publisher. Dependent stages that block occupy one of these threads though.
      *
      * @param topic  The topic to send the packet to
      * @param key    Just like described in {@link HagridPublisher#push(String, String, Packet)}
@@ -21,12 +31,40 @@ public interface UpstreamHandler extends Connectible {
      * @param packet The packet to sent.
      * @param <T>    Type of the payload
      *
-     * @throws HagridStreamException If the sending process fails
+     * @return A future that completes when the packet got acknowledged
+     * or completes exceptionally if the sending process failed afterwards.
+     *
+     * @throws HagridStreamException If the packet could not be handed to the publisher
+     */
+    <T> CompletableFuture<Void> send(String topic, String key, HagridPacket<T> packet) throws HagridStreamException;
+
+    default <T> CompletableFuture<Void> send(final String topic, final HagridPacket<T> packet) throws HagridStreamException {
+        return this.send(topic, "", packet);
+    }
+
+    /**
+     * Sends multiple packets at once, each to the topic of {@link HagridPacket#getTopic()}.
+     * <p>
+     * The topics are only looked up once per batch and all packets are serialized
+     * before handing them to the publisher as a whole with {@link HagridPublisher#pushAll(java.util.List)}.
+     * If a single packet can not be serialized, no packet of the batch is sent.
+     * <p>
+     * Just like with {@link #send(String, String, HagridPacket)} the future is
+     * completed on a thread of Hagrid.
+     *
+     * @param key     The key for all packets, see {@link #send(String, String, HagridPacket)}
+     * @param packets The packets to send, must not be modified afterwards,
+     *                as the upstream listeners are executed with them later
+     *
+     * @return A future that completes when all packets got acknowledged
+     * or completes exceptionally if sending any of them failed.
+     *
+     * @throws HagridStreamException If the packets could not be handed to the publisher
      */
-    <T> void send(String topic, String key, HagridPacket<T> packet) throws HagridStreamException;
+    CompletableFuture<Void> sendAll(String key, Collection<? extends HagridPacket<?>> packets) throws HagridStreamException;
 
-    default <T> void send(final String topic, final HagridPacket<T> packet) throws HagridStreamException {
-        this.send(topic, "", packet);
+    default CompletableFuture<Void> sendAll(final Collection<? extends HagridPacket<?>> packets) throws HagridStreamException {
+        return this.sendAll("", packets);
     }
 
     /**
@@ -0,0 +1,168 @@
+package dev.volix.rewinside.odyssey.hagrid.id;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A 128 bit id of a packet, see {@link TimeOrderedPacketIdGenerator}.
+ * <p>
+ * The id can be represented as 16 bytes with {@link #toBytes()} or as a compact string
+ * of 22 characters with {@link #toString()}. The string only contains url safe characters
+ * and preserves the order of the ids, so that sorting the strings sorts the ids by time.
+ *
+ * @author Tobias Büser
+ */
+public final class PacketId implements Comparable<PacketId> {
+
+    public static final int BYTES = 16;
+    public static final int STRING_LENGTH = 22;
+
+    /**
+     * Like base64url but in ascending ascii order, so that the order of the ids is kept.
+     */
+    private static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final byte[] DECODING = new byte[128];
+
+    static {
+        Arrays.fill(DECODING, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODING[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+
+    private String string;
+
+    public PacketId(final long mostSignificantBits, final long leastSignificantBits) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+    }
+
+    /**
+     * @param bytes The 16 bytes as given by {@link #toBytes()}
+     */
+    public static PacketId fromBytes(final byte[] bytes) {
+        if (bytes.length != BYTES) throw new IllegalArgumentException("packet id must have " + BYTES + " bytes");
+
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < 8; i++) {
+            most = (most << 8) | (bytes[i] & 0xFF);
+            least = (least << 8) | (bytes[i + 8] & 0xFF);
+        }
+        return new PacketId(most, least);
+    }
+
+    public static PacketId fromUuid(final UUID uuid) {
+        return new PacketId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Parses the id from its compact string or from a {@link UUID} string,
+     * which were used as packet ids before.
+     *
+     * @param id The id as string
+     *
+     * @throws IllegalArgumentException if the string is neither a compact id nor a uuid
+     */
+    public static PacketId parse(final String id) {
+        if (id.length() != STRING_LENGTH) {
+            return fromUuid(UUID.fromString(id));
+        }
+
+        // the first character only holds the two highest bits
+        long most = 0;
+        long least = decode(id.charAt(0));
+        if (least > 3) throw new IllegalArgumentException("invalid packet id: " + id);
+
+        for (int i = 1; i < STRING_LENGTH; i++) {
+            final long value = decode(id.charAt(i));
+            // shift all 128 bits by 6 to the left
+            most = (most << 6) | (least >>> 58);
+            least = (least << 6) | value;
+        }
+        return new PacketId(most, least);
+    }
+
+    private static long decode(final char c) {
+        final byte value = c < DECODING.length ? DECODING[c] : -1;
+        if (value < 0) throw new IllegalArgumentException("invalid character in packet id: " + c);
+        return value;
+    }
+
+    public long getMostSignificantBits() {
+        return this.mostSignificantBits;
+    }
+
+    public long getLeastSignificantBits() {
+        return this.leastSignificantBits;
+    }
+
+    /**
+     * @return The time in milliseconds when the id got generated,
+     * only if it got generated by a {@link TimeOrderedPacketIdGenerator}.
+     */
+    public long getTimestamp() {
+        return this.mostSignificantBits >>> 16;
+    }
+
+    public byte[] toBytes() {
+        final byte[] bytes = new byte[BYTES];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) (this.mostSignificantBits >>> (8 * (7 - i)));
+            bytes[i + 8] = (byte) (this.leastSignificantBits >>> (8 * (7 - i)));
+        }
+        return bytes;
+    }
+
+    public UUID toUuid() {
+        return new UUID(this.mostSignificantBits, this.leastSignificantBits);
+    }
+
+    @Override
+    public int compareTo(final PacketId other) {
+        final int compare = Long.compareUnsigned(this.mostSignificantBits, other.mostSignificantBits);
+        if (compare != 0) return compare;
+        return Long.compareUnsigned(this.leastSignificantBits, other.leastSignificantBits);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PacketId)) return false;
+        final PacketId other = (PacketId) o;
+        return this.mostSignificantBits == other.mostSignificantBits
+            && this.leastSignificantBits == other.leastSignificantBits;
+    }
+
+    @Override
+    public int hashCode() {
+        final long hash = this.mostSignificantBits ^ this.leastSignificantBits;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @return The compact string of the id, which can be parsed again with {@link #parse(String)}.
+     */
+    @Override
+    public String toString() {
+        String string = this.string;
+        if (string == null) {
+            final char[] chars = new char[STRING_LENGTH];
+            long most = this.mostSignificantBits;
+            long least = this.leastSignificantBits;
+            for (int i = STRING_LENGTH - 1; i >= 0; i--) {
+                chars[i] = ALPHABET[(int) (least & 0x3F)];
+                // shift all 128 bits by 6 to the right
+                least = (least >>> 6) | (most << 58);
+                most >>>= 6;
+            }
+            string = new String(chars);
+            this.string = string;
+        }
+        return string;
+    }
+
+}
@@ -0,0 +1,25 @@
+package dev.volix.rewinside.odyssey.hagrid.id;
+
+/**
+ * Generates the ids of the packets that are sent.
+ * <p>
+ * The ids have to be unique across all instances that communicate with each other,
+ * as responses are matched to their request by the id.
+ *
+ * @author Tobias Büser
+ */
+public interface PacketIdGenerator {
+
+    /**
+     * @return A new unique id.
+     */
+    PacketId next();
+
+    /**
+     * @return The string of a new unique id, as used by {@link dev.volix.rewinside.odyssey.hagrid.HagridPacket#getId()}.
+     */
+    default String nextString() {
+        return this.next().toString();
+    }
+
+}
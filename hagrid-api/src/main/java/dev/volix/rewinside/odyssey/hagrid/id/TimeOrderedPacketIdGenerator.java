@@ -0,0 +1,65 @@
+package dev.volix.rewinside.odyssey.hagrid.id;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates ids that are ordered by the time they got generated.
+ * <p>
+ * The 128 bits of an id consist of
+ * <ul>
+ *     <li>48 bits of the current time in milliseconds,
+ *     <li>48 bits of the node id, which identifies the generating instance,
+ *     <li>32 bits of a counter, so that one node can generate a lot of ids per millisecond.
+ * </ul>
+ * In contrast to {@link java.util.UUID#randomUUID()} generating an id does
+ * not need a secure random and therefore does not block other threads.
+ *
+ * @author Tobias Büser
+ */
+public class TimeOrderedPacketIdGenerator implements PacketIdGenerator {
+
+    private static final long NODE_MASK = (1L << 48) - 1;
+
+    private static final TimeOrderedPacketIdGenerator DEFAULT = new TimeOrderedPacketIdGenerator();
+
+    private final long nodeId;
+    private final AtomicInteger counter;
+
+    /**
+     * @param nodeId The id of this instance, only the lower 48 bits are used.
+     */
+    public TimeOrderedPacketIdGenerator(final long nodeId) {
+        this.nodeId = nodeId & NODE_MASK;
+        this.counter = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+    }
+
+    /**
+     * Creates a generator with a random node id.
+     */
+    public TimeOrderedPacketIdGenerator() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @return A generator with a random node id, that is shared by the whole application.
+     */
+    public static TimeOrderedPacketIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    public long getNodeId() {
+        return this.nodeId;
+    }
+
+    @Override
+    public PacketId next() {
+        final long timestamp = System.currentTimeMillis();
+        final int count = this.counter.getAndIncrement();
+
+        return new PacketId(
+            (timestamp << 16) | (this.nodeId >>> 32),
+            (this.nodeId << 32) | (count & 0xFFFFFFFFL));
+    }
+
+}
@@ -11,7 +11,8 @@ import dev.volix.rewinside.odyssey.hagrid.HagridPacket;
 public enum Direction {
 
     /**
-     * Outgoing packets.
+     * Outgoing packets. Their listeners are executed asynchronously on a thread of Hagrid
+     * as soon as the pub/sub system acknowledged the packet, and only if it did.
      */
     UPSTREAM,
 
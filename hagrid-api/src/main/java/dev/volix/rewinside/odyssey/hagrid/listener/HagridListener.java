@@ -73,8 +73,9 @@ public class HagridListener {
      * and an empty payload.
      * <p>
      * Temporary listeners can be registered when setting this value >= 0,
-     * just like {@link PacketWizard#sendAndWait()} does it with listening to
-     * a response.
+     * e.g. to listen to a response with {@link Builder#listensTo(String)}.
+     * Though {@link PacketWizard#sendAndWait()} does not need such a listener,
+     * as it uses the {@link HagridRequestRegistry}.
      */
     private final int timeoutInSeconds;
 
@@ -113,6 +114,12 @@ public class HagridListener {
      */
     private long registeredAt;
 
+    /**
+     * The execution times of the {@link #consumer}, only created
+     * as soon as the listener got executed for the first time.
+     */
+    private volatile LatencyHistogram latency;
+
     private HagridListener(final String topic, final Direction direction, final Class<?> payloadClass,
                            final int priority, final String requestId, final HagridListenerMethod packetConsumer,
                            final int timeoutInSeconds, final boolean responsive) {
@@ -199,6 +206,40 @@ public class HagridListener {
         return this.consumer;
     }
 
+    /**
+     * Records how long an execution of this listener took.
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void recordLatency(final long nanos) {
+        LatencyHistogram latency = this.latency;
+        if (latency == null) {
+            synchronized (this) {
+                latency = this.latency;
+                if (latency == null) {
+                    latency = new LatencyHistogram();
+                    this.latency = latency;
+                }
+            }
+        }
+        latency.record(nanos);
+    }
+
+    /**
+     * @return The execution times of this listener or {@code null}, if it has not been executed yet.
+     */
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    @Override
+    public String toString() {
+        return "HagridListener{topic=" + this.topic
+            + ", method=" + this.consumer
+            + ", payloadClass=" + (this.payloadClass == null ? "null" : this.payloadClass.getName())
+            + ", direction=" + this.direction + "}";
+    }
+
     public static class Builder {
 
         private String topic = "";
@@ -0,0 +1,59 @@
+package dev.volix.rewinside.odyssey.hagrid.listener;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridPacket;
+import dev.volix.rewinside.odyssey.hagrid.PacketWizard;
+import dev.volix.rewinside.odyssey.hagrid.protocol.StatusCode;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a registry for requests that are waiting for a response,
+ * e.g. when using {@link PacketWizard#sendAndWait(Class)}.
+ * <p>
+ * Instead of registering a {@link HagridListener} that listens to the id
+ * of the request, the responses are directly matched by their {@link HagridPacket#getRequestId()}.
+ *
+ * @author Tobias Büser
+ */
+public interface HagridRequestRegistry {
+
+    /**
+     * Registers a request, so that the returned future completes
+     * as soon as a response to it is received.
+     *
+     * @param topic            The topic the request is sent to
+     * @param requestId        The id of the request packet. The response has this
+     *                         id as its {@link HagridPacket#getRequestId()}.
+     * @param payloadClass     The payload class of the response. Can be {@code null} or
+     *                         {@link Void} to accept <b>any</b> payload type.
+     * @param timeoutInSeconds After this time the future completes with a packet
+     *                         with the status {@link StatusCode#TIMEOUT}.
+     *                         Set to {@code 0} to disable.
+     *
+     * @return A future that one can use to wait for the response.
+     */
+    <T> CompletableFuture<HagridPacket<T>> registerRequest(String topic, String requestId, Class<T> payloadClass, int timeoutInSeconds);
+
+    /**
+     * Completes the request that given packet is a response to.
+     *
+     * @param response The packet that got received.
+     *
+     * @return If a waiting request got completed with the packet.
+     */
+    boolean completeRequest(HagridPacket<?> response);
+
+    /**
+     * @param requestId The id of the request packet
+     *
+     * @return If the request is still waiting for a response.
+     */
+    boolean hasRequest(String requestId);
+
+    /**
+     * Unregisters a request without completing it.
+     *
+     * @param requestId The id of the request packet
+     */
+    void unregisterRequest(String requestId);
+
+}
@@ -0,0 +1,123 @@
+package dev.volix.rewinside.odyssey.hagrid.listener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of durations in nanoseconds.
+ * <p>
+ * Just like a HDR histogram the buckets grow exponentially, where every power of two
+ * is split into {@code 8} linear sub buckets. So every recorded value is off by at most
+ * 12.5%, while a few hundred buckets cover everything from a nanosecond up to minutes.
+ * Recording a value does not allocate or lock.
+ *
+ * @author Tobias Büser
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The highest power of two that gets its own buckets, everything above
+     * (~18 minutes) is put into the last bucket.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos The duration to record, negative durations are recorded as {@code 0}
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+
+        this.counts.incrementAndGet(indexOf(value));
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(value);
+
+        long max = this.maxNanos.get();
+        while (value > max && !this.maxNanos.compareAndSet(max, value)) {
+            max = this.maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        final long count = this.getCount();
+        return count == 0 ? 0 : this.getTotalNanos() / count;
+    }
+
+    /**
+     * @param percentile The percentile between {@code 0} and {@code 100}, e.g. {@code 99.9}
+     *
+     * @return The highest value of the bucket that contains the percentile,
+     * but never more than the highest value recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long count = this.getCount();
+        if (count == 0) return 0;
+
+        final long targetCount = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= targetCount) {
+                return Math.min(upperBoundOf(i), this.getMaxNanos());
+            }
+        }
+        return this.getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        final TimeUnit unit = TimeUnit.NANOSECONDS;
+        return "count=" + this.getCount()
+            + ", mean=" + unit.toMicros(this.getMeanNanos()) + "us"
+            + ", p50=" + unit.toMicros(this.getValueAtPercentile(50)) + "us"
+            + ", p99=" + unit.toMicros(this.getValueAtPercentile(99)) + "us"
+            + ", max=" + unit.toMicros(this.getMaxNanos()) + "us";
+    }
+
+    private static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+
+        // the bits right after the highest one decide the sub bucket
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(final int index) {
+        if (index == BUCKETS - 1) return Long.MAX_VALUE;
+        return lowerBoundOf(index + 1) - 1;
+    }
+
+    private static long lowerBoundOf(final int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long subBucket = index % SUB_BUCKETS;
+        return (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+    }
+
+}
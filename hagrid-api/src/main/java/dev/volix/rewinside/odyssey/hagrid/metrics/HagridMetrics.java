@@ -0,0 +1,118 @@
+package dev.volix.rewinside.odyssey.hagrid.metrics;
+
+import dev.volix.rewinside.odyssey.hagrid.ConnectionHandler;
+import dev.volix.rewinside.odyssey.hagrid.listener.Direction;
+import dev.volix.rewinside.odyssey.hagrid.listener.HagridListener;
+import java.util.function.IntSupplier;
+
+/**
+ * Records what is happening inside of Hagrid, e.g. to export it to a monitoring system.
+ * <p>
+ * Every method is called directly on the hot path of sending and receiving packets,
+ * so implementations should not block or allocate and just record the values.
+ * The topic is the concrete topic name of the packet, only listener
+ * timeouts are reported with the topic pattern of the listener.
+ * <p>
+ * Every method does nothing at default, so that an implementation
+ * only has to override what it is interested in.
+ *
+ * @author Tobias Büser
+ */
+public interface HagridMetrics {
+
+    /**
+     * Does not record anything at all.
+     */
+    HagridMetrics NOOP = new HagridMetrics() { };
+
+    /**
+     * A packet got acknowledged by the broker.
+     *
+     * @param topic              The topic the packet got sent to
+     * @param serializationNanos The time it took to serialize the packet
+     */
+    default void packetSent(final String topic, final long serializationNanos) {
+    }
+
+    /**
+     * A packet could not be serialized or was not acknowledged by the broker.
+     */
+    default void packetSendFailed(final String topic) {
+    }
+
+    /**
+     * A packet got received and decoded successfully.
+     *
+     * @param topic       The topic the packet got received from
+     * @param decodeNanos The time it took to decode and deserialize the packet
+     */
+    default void packetReceived(final String topic, final long decodeNanos) {
+    }
+
+    /**
+     * A received packet got skipped, e.g. because it is stale, we sent it
+     * ourselves or it could not be deserialized.
+     */
+    default void packetSkipped(final String topic) {
+    }
+
+    /**
+     * A listener got executed.
+     *
+     * @param topic         The topic of the packet
+     * @param direction     If the packet got sent or received
+     * @param durationNanos The time the listener took
+     * @param failed        If the listener threw an exception
+     */
+    default void listenerExecuted(final String topic, final Direction direction, final long durationNanos, final boolean failed) {
+    }
+
+    /**
+     * A listener took longer than the configured threshold. This is called
+     * in addition to {@link #listenerExecuted(String, Direction, long, boolean)}.
+     *
+     * @param topic         The topic of the packet
+     * @param listener      The slow listener
+     * @param durationNanos The time the listener took
+     */
+    default void slowListener(final String topic, final HagridListener listener, final long durationNanos) {
+    }
+
+    /**
+     * A listener got unregistered, because it timed out.
+     *
+     * @param pattern The topic pattern the listener got registered with,
+     *                which is not a concrete topic name
+     */
+    default void listenerTimedOut(final String pattern) {
+    }
+
+    /**
+     * A request did not get a response in time.
+     */
+    default void requestTimedOut(final String topic) {
+    }
+
+    /**
+     * The status of the connection changed.
+     */
+    default void connectionStatusChanged(final ConnectionHandler.Status status) {
+    }
+
+    /**
+     * An attempt to reconnect has been made.
+     */
+    default void reconnectAttempted() {
+    }
+
+    /**
+     * Registers a queue, whose size can be observed.
+     * This is only called once per queue and not on the hot path.
+     *
+     * @param name The name of the queue, e.g. {@code listener}
+     * @param size The current size of the queue
+     */
+    default void registerQueue(final String name, final IntSupplier size) {
+    }
+
+}
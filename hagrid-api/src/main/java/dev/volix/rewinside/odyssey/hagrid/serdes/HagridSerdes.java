@@ -1,5 +1,8 @@
 package dev.volix.rewinside.odyssey.hagrid.serdes;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
 /**
  * A serdes is a serialization and deserialization instance.
  *
@@ -32,4 +35,34 @@ public interface HagridSerdes<T> {
      */
     T deserialize(String typeUrl, byte[] data);
 
+    /**
+     * Serializes the payload directly to a {@link ByteString}, so that it
+     * can be put into the packet without copying it.
+     * <p>
+     * Defaults to wrapping the result of {@link #serialize(Object)}.
+     *
+     * @param payload The payload to serialize.
+     *
+     * @return The serialized data
+     */
+    default ByteString serializeToByteString(final T payload) {
+        // the array is not used anywhere else, so it is safe to wrap it
+        return UnsafeByteOperations.unsafeWrap(this.serialize(payload));
+    }
+
+    /**
+     * Deserializes the data of a packet without copying it to a byte array first.
+     * <p>
+     * Defaults to {@link #deserialize(String, byte[])}, so implementations
+     * should override this, if they can read from the {@link ByteString} directly.
+     *
+     * @param typeUrl The Java url of the class i.e. {@link Class#getTypeName()}
+     * @param data    The data to be deserialized
+     *
+     * @return The instance deserialized out of the {@code data}. Can be null
+     */
+    default T deserialize(final String typeUrl, final ByteString data) {
+        return this.deserialize(typeUrl, data.toByteArray());
+    }
+
 }
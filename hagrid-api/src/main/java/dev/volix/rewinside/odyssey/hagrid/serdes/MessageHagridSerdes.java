@@ -1,34 +1,110 @@
 package dev.volix.rewinside.odyssey.hagrid.serdes;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Internal;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Serdes for every protobuf {@link Message}, whose class is given by the type url.
+ * <p>
+ * The parser of every type url is only looked up once and then cached, so that
+ * decoding the message is the only cost per packet. To avoid the lookup entirely,
+ * message types can be registered beforehand with {@link #register(Class)}.
+ *
  * @author Tobias Büser
  */
 public class MessageHagridSerdes implements HagridSerdes<Message> {
 
+    /**
+     * The maximum amount of unknown type urls to remember, as they
+     * are coming from the network and could be anything.
+     */
+    private static final int MAX_UNKNOWN_TYPES = 1024;
+
+    /**
+     * The parsers mapped by their type url, or an empty optional, if
+     * the type url does not belong to a message class.
+     */
+    private final Map<String, Optional<Parser<? extends Message>>> parsers = new ConcurrentHashMap<>();
+    private final AtomicInteger unknownTypes = new AtomicInteger();
+
     @Override
     public Class<Message> getType() {
         return Message.class;
     }
 
+    /**
+     * Registers the message type, so that the parser does not have
+     * to be looked up on the first packet with its type url.
+     *
+     * @param messageClass The class of the message
+     */
+    public void register(final Class<? extends Message> messageClass) {
+        this.register(Internal.getDefaultInstance(messageClass));
+    }
+
+    public void register(final Message defaultInstance) {
+        this.parsers.put(defaultInstance.getClass().getTypeName(), Optional.of(defaultInstance.getParserForType()));
+    }
+
     @Override
     public byte[] serialize(final Message payload) {
         return payload.toByteArray();
     }
 
+    @Override
+    public ByteString serializeToByteString(final Message payload) {
+        return payload.toByteString();
+    }
+
     @Override
     public Message deserialize(final String typeUrl, final byte[] data) {
         try {
-            final Class<? extends Message> clazz = (Class<? extends Message>) Class.forName(typeUrl);
-            final Message defaultInstance = Internal.getDefaultInstance(clazz);
+            return this.getParser(typeUrl).parseFrom(data);
+        } catch (final InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            return defaultInstance.getParserForType().parseFrom(data);
-        } catch (final InvalidProtocolBufferException | ClassNotFoundException e) {
+    @Override
+    public Message deserialize(final String typeUrl, final ByteString data) {
+        try {
+            return this.getParser(typeUrl).parseFrom(data);
+        } catch (final InvalidProtocolBufferException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private Parser<? extends Message> getParser(final String typeUrl) {
+        Optional<Parser<? extends Message>> parser = this.parsers.get(typeUrl);
+        if (parser == null) {
+            parser = this.lookupParser(typeUrl);
+
+            if (parser.isPresent() || this.unknownTypes.get() < MAX_UNKNOWN_TYPES) {
+                if (this.parsers.putIfAbsent(typeUrl, parser) == null && !parser.isPresent()) {
+                    this.unknownTypes.incrementAndGet();
+                }
+            }
+        }
+        return parser.orElseThrow(() -> new RuntimeException(new ClassNotFoundException(typeUrl)));
+    }
+
+    private Optional<Parser<? extends Message>> lookupParser(final String typeUrl) {
+        try {
+            final Class<?> clazz = Class.forName(typeUrl);
+            if (!Message.class.isAssignableFrom(clazz)) return Optional.empty();
+
+            final Message defaultInstance = Internal.getDefaultInstance((Class<? extends Message>) clazz);
+            return Optional.of(defaultInstance.getParserForType());
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+
 }
@@ -1,5 +1,7 @@
 package dev.volix.rewinside.odyssey.hagrid.serdes;
 
+import com.google.protobuf.ByteString;
+
 /**
  * @author Tobias Büser
  */
@@ -15,9 +17,19 @@ public class NullHagridSerdes implements HagridSerdes<Void> {
         return new byte[0];
     }
 
+    @Override
+    public ByteString serializeToByteString(final Void payload) {
+        return ByteString.EMPTY;
+    }
+
     @Override
     public Void deserialize(final String typeUrl, final byte[] data) {
         return null;
     }
 
+    @Override
+    public Void deserialize(final String typeUrl, final ByteString data) {
+        return null;
+    }
+
 }
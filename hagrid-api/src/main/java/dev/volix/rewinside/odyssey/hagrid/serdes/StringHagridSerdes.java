@@ -1,5 +1,6 @@
 package dev.volix.rewinside.odyssey.hagrid.serdes;
 
+import com.google.protobuf.ByteString;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -17,9 +18,19 @@ public class StringHagridSerdes implements HagridSerdes<String> {
         return payload.getBytes(StandardCharsets.UTF_8);
     }
 
+    @Override
+    public ByteString serializeToByteString(final String payload) {
+        return ByteString.copyFromUtf8(payload);
+    }
+
     @Override
     public String deserialize(final String typeUrl, final byte[] data) {
         return new String(data, StandardCharsets.UTF_8);
     }
 
+    @Override
+    public String deserialize(final String typeUrl, final ByteString data) {
+        return data.toStringUtf8();
+    }
+
 }
@@ -1,6 +1,7 @@
 package dev.volix.rewinside.odyssey.hagrid.topic;
 
 import dev.volix.rewinside.odyssey.hagrid.serdes.HagridSerdes;
+import java.util.Comparator;
 import java.util.regex.Pattern;
 
 /**
@@ -23,6 +24,24 @@ import java.util.regex.Pattern;
  */
 public class HagridTopic<T> implements Comparable<HagridTopic<?>> {
 
+    public static final String WILDCARD = "*";
+
+    /**
+     * Orders topics from the least to the most specific one. A topic is more specific
+     * than another, if it has more segments or if it has a fixed segment where the
+     * other one has a wildcard first. Topics that are equally specific are ordered
+     * by their pattern, so that only topics with the same pattern are equal.
+     */
+    public static final Comparator<HagridTopic<?>> BY_SPECIFICITY = (o1, o2) -> {
+        if (o1.segments.length != o2.segments.length) {
+            return Integer.compare(o1.segments.length, o2.segments.length);
+        }
+        for (int i = 0; i < o1.segments.length; i++) {
+            if (o1.wildcards[i] != o2.wildcards[i]) return o1.wildcards[i] ? -1 : 1;
+        }
+        return o1.pattern.compareTo(o2.pattern);
+    };
+
     /**
      * The topic pattern used to match subtopics to a topic.
      * <p>
@@ -50,12 +69,25 @@ public class HagridTopic<T> implements Comparable<HagridTopic<?>> {
      */
     private final Pattern regexPattern;
 
+    /**
+     * The segments of the pattern and whether they are a wildcard, so that we can
+     * compare and match topics without going through the regex.
+     */
+    private final String[] segments;
+    private final boolean[] wildcards;
+
     public HagridTopic(final String pattern, final HagridSerdes<T> serdes, final TopicProperties properties) {
         this.pattern = pattern;
         this.serdes = serdes;
         this.properties = properties;
 
         this.regexPattern = getTopicAsRegex(this.pattern);
+
+        this.segments = pattern.split("-");
+        this.wildcards = new boolean[this.segments.length];
+        for (int i = 0; i < this.segments.length; i++) {
+            this.wildcards[i] = WILDCARD.equals(this.segments[i]);
+        }
     }
 
     public HagridTopic(final String pattern, final HagridSerdes<T> serdes) {
@@ -78,6 +110,21 @@ public class HagridTopic<T> implements Comparable<HagridTopic<?>> {
         return this.properties;
     }
 
+    /**
+     * @return The amount of segments of the pattern, e.g. 3 for {@code volix-rewinside-*}.
+     */
+    public int getDepth() {
+        return this.segments.length;
+    }
+
+    public String getSegment(final int index) {
+        return this.segments[index];
+    }
+
+    public boolean isWildcard(final int index) {
+        return this.wildcards[index];
+    }
+
     /**
      * Returns given topic pattern as a regex so that the aserisk operator
      * '*' is applied correctly.
@@ -101,23 +148,34 @@ public class HagridTopic<T> implements Comparable<HagridTopic<?>> {
         if (this.pattern.equalsIgnoreCase(o.pattern)) return 0;
         // compares for which is a subtopic of which.
 
-        final String t1 = this.pattern.replaceAll("\\*", "any");
-        final String t2 = o.pattern.replaceAll("\\*", "any");
-
-        if (this.regexPattern.matcher(t2).matches()) {
+        if (this.contains(o)) {
             // we suppose t1 > t2
-            if (o.regexPattern.matcher(t1).matches()) {
+            if (o.contains(this)) {
                 // t1 = t2
                 return 0;
             }
             return 1;
-        } else if (o.regexPattern.matcher(t1).matches()) {
+        } else if (o.contains(this)) {
             // t2 > t1
             return -1;
         }
         return 1;
     }
 
+    /**
+     * @return If the other pattern, with its wildcards taken as a fixed segment, is a subtopic of this one.
+     */
+    private boolean contains(final HagridTopic<?> o) {
+        if (o.segments.length < this.segments.length) return false;
+
+        for (int i = 0; i < this.segments.length; i++) {
+            if (!this.wildcards[i] && (o.wildcards[i] || !this.segments[i].equals(o.segments[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
         return this.pattern + "(" + (this.serdes == null ? "null" : this.serdes.getClass().getSimpleName()) + ")";
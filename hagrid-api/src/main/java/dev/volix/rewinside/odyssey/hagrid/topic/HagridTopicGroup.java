@@ -1,9 +1,10 @@
 package dev.volix.rewinside.odyssey.hagrid.topic;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The topic group is a wrapper for a sorted list of topics to
@@ -13,6 +14,9 @@ import java.util.Map;
  * For example if I have a topic {@code volix-party} and I want to know
  * which of the registered topics (e.g. {@code volix-*}, {@code volix-party-*}, ..)
  * fits best, we can easily use {@link #getMostFitting(String)}.
+ * <p>
+ * The topics are kept in a tree of their segments, so that finding the most fitting
+ * topic only walks the segments of the given topic name instead of every registered topic.
  *
  * @author Tobias Büser
  */
@@ -27,8 +31,9 @@ public class HagridTopicGroup {
      */
     private final String prefix;
 
-    private final Map<String, HagridTopic<?>> topics = new HashMap<>();
-    private final List<HagridTopic<?>> sortedTopics = new ArrayList<>();
+    private final Map<String, HagridTopic<?>> topics = new ConcurrentHashMap<>();
+    private final TreeSet<HagridTopic<?>> sortedTopics = new TreeSet<>(HagridTopic.BY_SPECIFICITY);
+    private final Node root = new Node();
 
     public HagridTopicGroup(final HagridTopic<?> topic) {
         final String[] parts = topic.getPattern().split("-");
@@ -53,60 +58,51 @@ public class HagridTopicGroup {
      *
      * @return A registered topic that matches given pattern the most. This means
      * that we do not choose the most abstract, but the less abstract one which
-     * still matches the topic.
+     * still matches the topic, see {@link HagridTopic#BY_SPECIFICITY}.
      */
     public HagridTopic<?> getMostFitting(final String topicPattern) {
-        if (this.topics.containsKey(topicPattern)) {
-            return this.topics.get(topicPattern);
-        }
+        final HagridTopic<?> topic = this.topics.get(topicPattern);
+        if (topic != null) return topic;
 
-        final HagridTopic<?> toCheckTopic = new HagridTopic<>(topicPattern, null);
-        for (int i = 0; i < this.sortedTopics.size(); i++) {
-            final HagridTopic<?> sortedTopic = this.sortedTopics.get(i);
-
-            if (toCheckTopic.compareTo(sortedTopic) > 0) {
-                // tocheck is greater and therefore more abstract
-                // get the previous one, because we reached the leaf
-                if (i == 0) return null;
-                return this.sortedTopics.get(i - 1);
-            } else if (i == this.sortedTopics.size() - 1) {
-                // otherwise if we reached the end, we return as well
-                return sortedTopic;
-            }
-        }
-        return null;
+        return this.root.findMostFitting(topicPattern.split("-"), 0);
     }
 
     /**
-     * Adds a new topic to the map and sorts an internal list
-     * with {@link HagridTopic#compareTo(HagridTopic)}.
+     * Adds a new topic to the group.
      * If a topic like this already exists, it will get overriden.
      *
      * @param topic The topic to register
      */
-    public void add(final HagridTopic<?> topic) {
-        final boolean contains = this.topics.containsKey(topic.getPattern());
-        this.topics.put(topic.getPattern(), topic);
-
-        if (!contains) {
-            this.sortedTopics.add(topic);
-            this.sortedTopics.sort((o1, o2) -> o1.compareTo(o2) * -1);
+    public synchronized void add(final HagridTopic<?> topic) {
+        final HagridTopic<?> previous = this.topics.put(topic.getPattern(), topic);
+        if (previous != null) this.sortedTopics.remove(previous);
+        this.sortedTopics.add(topic);
+
+        Node node = this.root;
+        for (int i = 0; i < topic.getDepth(); i++) {
+            node = topic.isWildcard(i)
+                ? node.getOrCreateWildcard()
+                : node.literals.computeIfAbsent(topic.getSegment(i), segment -> new Node());
         }
+        node.topic = topic;
     }
 
     /**
-     * Removes given topic and sorts the internal list if a topic
-     * to unregister has been found.
+     * Removes given topic.
      *
      * @param topicPattern The pattern of the topic to unregister.
      */
-    public void remove(final String topicPattern) {
+    public synchronized void remove(final String topicPattern) {
         final HagridTopic<?> topic = this.topics.remove(topicPattern);
+        if (topic == null) return;
+        this.sortedTopics.remove(topic);
 
-        if (topic != null) {
-            this.sortedTopics.remove(topic);
-            this.sortedTopics.sort((o1, o2) -> o1.compareTo(o2) * -1);
+        Node node = this.root;
+        for (int i = 0; i < topic.getDepth() && node != null; i++) {
+            node = topic.isWildcard(i) ? node.wildcard : node.literals.get(topic.getSegment(i));
         }
+        // empty nodes are kept, as topics are rarely unregistered
+        if (node != null) node.topic = null;
     }
 
     public void remove(final HagridTopic<?> topic) {
@@ -117,8 +113,56 @@ public class HagridTopicGroup {
         return this.prefix;
     }
 
-    public List<HagridTopic<?>> getSortedTopics() {
-        return this.sortedTopics;
+    /**
+     * @return A copy of the topics, from the most abstract to the most specific one.
+     */
+    public synchronized List<HagridTopic<?>> getSortedTopics() {
+        return new ArrayList<>(this.sortedTopics);
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> literals = new ConcurrentHashMap<>();
+        private volatile Node wildcard;
+
+        /**
+         * The topic whose pattern ends at this node, if any.
+         */
+        private volatile HagridTopic<?> topic;
+
+        private Node getOrCreateWildcard() {
+            if (this.wildcard == null) this.wildcard = new Node();
+            return this.wildcard;
+        }
+
+        /**
+         * Finds the most specific topic in this subtree. As the fixed segment is checked
+         * before the wildcard, the first topic found at the deepest level is the most specific one.
+         *
+         * @param segments The segments of the topic name
+         * @param depth    The depth of this node, which is the index of the next segment
+         */
+        private HagridTopic<?> findMostFitting(final String[] segments, final int depth) {
+            HagridTopic<?> best = this.topic;
+            if (depth == segments.length) return best;
+
+            final Node literal = this.literals.get(segments[depth]);
+            if (literal != null) {
+                best = deeper(best, literal.findMostFitting(segments, depth + 1));
+            }
+            final Node wildcard = this.wildcard;
+            if (wildcard != null) {
+                best = deeper(best, wildcard.findMostFitting(segments, depth + 1));
+            }
+            return best;
+        }
+
+        private static HagridTopic<?> deeper(final HagridTopic<?> current, final HagridTopic<?> candidate) {
+            if (candidate == null) return current;
+            if (current == null || candidate.getDepth() > current.getDepth()) return candidate;
+            return current;
+        }
+
     }
 
 }
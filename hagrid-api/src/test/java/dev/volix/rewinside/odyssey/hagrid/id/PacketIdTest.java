@@ -0,0 +1,61 @@
+package dev.volix.rewinside.odyssey.hagrid.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class PacketIdTest {
+
+    @Test
+    void roundTripsThroughStringAndBytes() {
+        final TimeOrderedPacketIdGenerator generator = new TimeOrderedPacketIdGenerator();
+        final PacketId[] ids = {
+            generator.next(), generator.next(),
+            new PacketId(0, 0), new PacketId(-1, -1), new PacketId(Long.MIN_VALUE, 1),
+        };
+
+        for (final PacketId id : ids) {
+            final String string = id.toString();
+            assertEquals(PacketId.STRING_LENGTH, string.length());
+            assertEquals(id, PacketId.parse(string));
+            assertEquals(id, PacketId.fromBytes(id.toBytes()));
+            assertEquals(id, PacketId.fromUuid(id.toUuid()));
+        }
+    }
+
+    @Test
+    void parsesUuidStrings() {
+        final UUID uuid = UUID.randomUUID();
+
+        assertEquals(uuid, PacketId.parse(uuid.toString()).toUuid());
+    }
+
+    @Test
+    void rejectsInvalidStrings() {
+        assertThrows(IllegalArgumentException.class, () -> PacketId.parse("not-a-packet-id"));
+        // the first character only holds two bits
+        assertThrows(IllegalArgumentException.class, () -> PacketId.parse("zzzzzzzzzzzzzzzzzzzzzz"));
+        assertThrows(IllegalArgumentException.class, () -> PacketId.parse("!AAAAAAAAAAAAAAAAAAAAA"));
+    }
+
+    @Test
+    void generatedIdsAreOrderedByTime() throws InterruptedException {
+        final TimeOrderedPacketIdGenerator generator = new TimeOrderedPacketIdGenerator(42);
+        final long before = System.currentTimeMillis();
+        final PacketId first = generator.next();
+        Thread.sleep(5);
+        final PacketId second = generator.next();
+
+        assertTrue(first.getTimestamp() >= before);
+        assertTrue(second.getTimestamp() > first.getTimestamp());
+        assertTrue(second.compareTo(first) > 0);
+        assertTrue(second.toString().compareTo(first.toString()) > 0);
+    }
+
+}
@@ -0,0 +1,56 @@
+package dev.volix.rewinside.odyssey.hagrid.listener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramIsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void recordsSmallValuesExactly() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        for (int i = 1; i <= 7; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(8, histogram.getCount());
+        assertEquals(28, histogram.getTotalNanos());
+        assertEquals(7, histogram.getMaxNanos());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1_000; nanos <= 1_000_000; nanos += 1_000) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(1_000, histogram.getCount());
+        assertEquals(500_500, histogram.getMeanNanos());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+
+        // a bucket covers an eighth of its power of two at most
+        final long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 9 / 8);
+        final long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000);
+    }
+
+}
@@ -0,0 +1,72 @@
+package dev.volix.rewinside.odyssey.hagrid.topic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class HagridTopicGroupTest {
+
+    private static final String[] PATTERNS = {
+        "volix-*", "volix-party", "volix-party-*", "volix-*-lobby", "volix-party-lobby-*", "volix-*-*-game",
+    };
+
+    private static final String[] TOPICS = {
+        "volix", "volix-game", "volix-party", "volix-party-game", "volix-foo-lobby", "volix-party-lobby",
+        "volix-party-lobby-1", "volix-a-b-game", "volix-a-b-c", "volix-party-lobby-1-2",
+    };
+
+    private HagridTopicGroup createGroup() {
+        final HagridTopicGroup group = new HagridTopicGroup(new HagridTopic<>("volix", null));
+        for (final String pattern : PATTERNS) {
+            group.add(new HagridTopic<>(pattern, null));
+        }
+        return group;
+    }
+
+    /**
+     * The most specific of all topics whose regex matches, without the tree.
+     */
+    private static HagridTopic<?> getMostFittingByRegex(final HagridTopicGroup group, final String topic) {
+        HagridTopic<?> mostFitting = null;
+        for (final HagridTopic<?> registered : group.getSortedTopics()) {
+            if (registered.getRegexPattern().matcher(topic).matches()) mostFitting = registered;
+        }
+        return mostFitting;
+    }
+
+    @Test
+    void mostFittingIsMostSpecificMatch() {
+        final HagridTopicGroup group = this.createGroup();
+
+        for (final String topic : TOPICS) {
+            assertEquals(getMostFittingByRegex(group, topic), group.getMostFitting(topic));
+        }
+    }
+
+    @Test
+    void prefersLessAbstractTopic() {
+        final HagridTopicGroup group = this.createGroup();
+
+        assertEquals("volix", group.getMostFitting("volix").getPattern());
+        assertEquals("volix-party", group.getMostFitting("volix-party").getPattern());
+        assertEquals("volix-party-*", group.getMostFitting("volix-party-game").getPattern());
+        assertEquals("volix-*-lobby", group.getMostFitting("volix-foo-lobby").getPattern());
+        assertEquals("volix-*", group.getMostFitting("volix-game").getPattern());
+    }
+
+    @Test
+    void fallsBackAfterRemoval() {
+        final HagridTopicGroup group = this.createGroup();
+        group.remove("volix-party-*");
+        group.remove("volix-*");
+
+        assertEquals("volix-party", group.getMostFitting("volix-party-game").getPattern());
+        assertEquals("volix", group.getMostFitting("volix-game").getPattern());
+        assertNull(group.getTopicExactly("volix-*"));
+    }
+
+}
@@ -0,0 +1,90 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import dev.volix.rewinside.odyssey.hagrid.CommunicationHandler;
+import dev.volix.rewinside.odyssey.hagrid.ConnectionHandler;
+import dev.volix.rewinside.odyssey.hagrid.DownstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridCommunicationHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridConfig;
+import dev.volix.rewinside.odyssey.hagrid.HagridConnectionHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridDownstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridPacketWizard;
+import dev.volix.rewinside.odyssey.hagrid.HagridService;
+import dev.volix.rewinside.odyssey.hagrid.HagridUpstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.PacketWizard;
+import dev.volix.rewinside.odyssey.hagrid.UpstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.config.PropertiesConfig;
+import java.util.Properties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A service with the handlers of hagrid-core, but without an actual
+ * pub/sub system behind it, so that we only measure Hagrid itself.
+ *
+ * @author Tobias Büser
+ */
+public class BenchmarkHagridService implements HagridService {
+
+    private final Logger logger = LogManager.getLogger(BenchmarkHagridService.class);
+
+    private final PropertiesConfig hagridConfig;
+
+    private final HagridConnectionHandler connectionHandler;
+    private final HagridUpstreamHandler upstreamHandler;
+    private final HagridDownstreamHandler downstreamHandler;
+    private final HagridCommunicationHandler communicationHandler;
+
+    public BenchmarkHagridService(final Properties properties) {
+        this.hagridConfig = new HagridConfig(properties);
+
+        this.connectionHandler = new HagridConnectionHandler(this) {
+            @Override
+            public void checkConnection() {
+                // there is nothing to connect to
+            }
+        };
+        this.upstreamHandler = new HagridUpstreamHandler(this, new NoopHagridPublisher());
+        this.downstreamHandler = new HagridDownstreamHandler(this, NoopHagridSubscriber::new);
+        this.communicationHandler = new HagridCommunicationHandler(this);
+    }
+
+    public BenchmarkHagridService() {
+        this(new Properties());
+    }
+
+    @Override
+    public Logger getLogger() {
+        return this.logger;
+    }
+
+    @Override
+    public PropertiesConfig getConfiguration() {
+        return this.hagridConfig;
+    }
+
+    @Override
+    public PacketWizard wizard() {
+        return new HagridPacketWizard(this);
+    }
+
+    @Override
+    public ConnectionHandler connection() {
+        return this.connectionHandler;
+    }
+
+    @Override
+    public UpstreamHandler upstream() {
+        return this.upstreamHandler;
+    }
+
+    @Override
+    public HagridDownstreamHandler downstream() {
+        return this.downstreamHandler;
+    }
+
+    @Override
+    public CommunicationHandler communication() {
+        return this.communicationHandler;
+    }
+
+}
@@ -0,0 +1,89 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.StringValue;
+import dev.volix.rewinside.odyssey.hagrid.HagridPacket;
+import dev.volix.rewinside.odyssey.hagrid.HagridSubscriber;
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import dev.volix.rewinside.odyssey.hagrid.protocol.Status;
+import dev.volix.rewinside.odyssey.hagrid.serdes.HagridSerdes;
+import dev.volix.rewinside.odyssey.hagrid.serdes.MessageHagridSerdes;
+import dev.volix.rewinside.odyssey.hagrid.serdes.NullHagridSerdes;
+import dev.volix.rewinside.odyssey.hagrid.serdes.StringHagridSerdes;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decoding a polled record into a {@link HagridPacket},
+ * just like the consumer tasks do it, for each serdes.
+ *
+ * @author Tobias Büser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    private static final String TEXT = "Hello, this is Hagrid!";
+
+    @Param({"message", "string", "null"})
+    private String serdes;
+
+    private BenchmarkHagridService service;
+    private HagridSubscriber.Record record;
+
+    @Setup
+    public void setup() {
+        final HagridSerdes<?> hagridSerdes;
+        final ByteString payload;
+        final String typeUrl;
+        switch (this.serdes) {
+            case "message":
+                hagridSerdes = new MessageHagridSerdes();
+                payload = StringValue.of(TEXT).toByteString();
+                typeUrl = StringValue.class.getTypeName();
+                break;
+            case "string":
+                hagridSerdes = new StringHagridSerdes();
+                payload = ByteString.copyFrom(TEXT, StandardCharsets.UTF_8);
+                typeUrl = String.class.getTypeName();
+                break;
+            default:
+                hagridSerdes = new NullHagridSerdes();
+                payload = ByteString.EMPTY;
+                typeUrl = Void.class.getTypeName();
+                break;
+        }
+
+        this.service = new BenchmarkHagridService();
+        this.service.communication().registerTopic("bench", hagridSerdes);
+
+        final Packet packet = Packet.newBuilder()
+            .setId(UUID.randomUUID().toString())
+            .setPayload(Packet.Payload.newBuilder().setTypeUrl(typeUrl).setValue(payload).build())
+            .setStatus(Status.newBuilder().build())
+            .build();
+        this.record = new HagridSubscriber.Record("bench", null, packet, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public HagridPacket<?> decode() {
+        return this.service.downstream().decode(this.record);
+    }
+
+}
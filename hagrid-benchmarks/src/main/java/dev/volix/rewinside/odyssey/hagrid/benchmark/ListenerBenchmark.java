@@ -0,0 +1,78 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridPacket;
+import dev.volix.rewinside.odyssey.hagrid.listener.Direction;
+import dev.volix.rewinside.odyssey.hagrid.listener.HagridListener;
+import dev.volix.rewinside.odyssey.hagrid.listener.HagridListener.Builder;
+import dev.volix.rewinside.odyssey.hagrid.serdes.StringHagridSerdes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures looking up and executing the listeners of a topic,
+ * while the amount of registered listeners grows.
+ * <p>
+ * Every tenth listener listens on a wildcard pattern, so that the lookup
+ * has to consider more than the exact topic.
+ *
+ * @author Tobias Büser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerBenchmark {
+
+    private static final String TOPIC = "bench-7-event";
+
+    @Param({"10", "100", "1000", "10000"})
+    private int listenerCount;
+
+    private BenchmarkHagridService service;
+    private HagridPacket<String> packet;
+
+    private final LongAdder executions = new LongAdder();
+
+    @Setup
+    public void setup() {
+        this.service = new BenchmarkHagridService();
+        this.service.communication().registerTopic("bench", new StringHagridSerdes());
+
+        for (int i = 0; i < this.listenerCount; i++) {
+            final String topic = i % 10 == 0 ? "bench-*-event" : "bench-" + (i % 50) + "-event";
+            final Builder builder = HagridListener.builder((payload, req, response) -> this.executions.increment());
+
+            this.service.communication().registerListener(builder
+                .topic(topic)
+                .payloadClass(String.class)
+                .build());
+        }
+
+        this.packet = new HagridPacket<>(TOPIC, "payload");
+    }
+
+    @Benchmark
+    public List<HagridListener> getListener() {
+        return this.service.communication().getListener(TOPIC, String.class);
+    }
+
+    @Benchmark
+    public void executeListeners() {
+        this.service.communication().executeListeners(TOPIC, Direction.DOWNSTREAM, this.packet);
+    }
+
+}
@@ -0,0 +1,29 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridPublisher;
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publisher that acknowledges every packet immediately without sending it anywhere.
+ *
+ * @author Tobias Büser
+ */
+public class NoopHagridPublisher implements HagridPublisher {
+
+    private static final CompletableFuture<Void> ACKNOWLEDGED = CompletableFuture.completedFuture(null);
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CompletableFuture<Void> push(final String topic, final String key, final Packet packet) {
+        return ACKNOWLEDGED;
+    }
+
+}
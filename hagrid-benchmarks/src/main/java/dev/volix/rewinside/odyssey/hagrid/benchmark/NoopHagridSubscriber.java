@@ -0,0 +1,54 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridSubscriber;
+import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subscriber that never receives any record, so that registering
+ * topics works, but the consumer threads stay idle.
+ *
+ * @author Tobias Büser
+ */
+public class NoopHagridSubscriber implements HagridSubscriber {
+
+    private final Map<String, HagridTopic<?>> topics = new ConcurrentHashMap<>();
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public List<HagridTopic<?>> getTopics() {
+        return new ArrayList<>(this.topics.values());
+    }
+
+    @Override
+    public void unsubscribe(final HagridTopic<?> topic) {
+        this.topics.remove(topic.getPattern());
+    }
+
+    @Override
+    public void subscribe(final HagridTopic<?> topic) {
+        this.topics.putIfAbsent(topic.getPattern(), topic);
+    }
+
+    @Override
+    public List<Record> poll() {
+        try {
+            Thread.sleep(100);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+    }
+
+}
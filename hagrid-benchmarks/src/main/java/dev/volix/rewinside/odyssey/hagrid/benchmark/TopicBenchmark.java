@@ -0,0 +1,72 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
+import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopicGroup;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding the registered topic for a concrete topic
+ * and comparing topics, while the amount of topics in a group grows.
+ *
+ * @author Tobias Büser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int topicCount;
+
+    private HagridTopicGroup topicGroup;
+
+    private HagridTopic<?> specificTopic;
+    private HagridTopic<?> abstractTopic;
+
+    @Setup
+    public void setup() {
+        this.topicGroup = new HagridTopicGroup(new HagridTopic<>("bench-*", null));
+
+        for (int i = 0; i < this.topicCount; i++) {
+            this.topicGroup.add(new HagridTopic<>(i % 2 == 0 ? "bench-" + i + "-*" : "bench-" + i, null));
+        }
+
+        this.specificTopic = new HagridTopic<>("bench-party-lobby-1", null);
+        this.abstractTopic = new HagridTopic<>("bench-*-lobby-*", null);
+    }
+
+    @Benchmark
+    public HagridTopic<?> getMostFittingExactly() {
+        return this.topicGroup.getMostFitting("bench-1");
+    }
+
+    @Benchmark
+    public HagridTopic<?> getMostFittingWildcard() {
+        return this.topicGroup.getMostFitting("bench-2-party");
+    }
+
+    @Benchmark
+    public HagridTopic<?> getMostFittingUnknown() {
+        return this.topicGroup.getMostFitting("bench-unknown-party");
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return this.specificTopic.compareTo(this.abstractTopic);
+    }
+
+}
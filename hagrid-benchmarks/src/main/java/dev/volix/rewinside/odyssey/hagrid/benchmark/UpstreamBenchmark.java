@@ -0,0 +1,68 @@
+package dev.volix.rewinside.odyssey.hagrid.benchmark;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.StringValue;
+import dev.volix.rewinside.odyssey.hagrid.HagridPacket;
+import dev.volix.rewinside.odyssey.hagrid.exception.HagridConnectionException;
+import dev.volix.rewinside.odyssey.hagrid.serdes.MessageHagridSerdes;
+import dev.volix.rewinside.odyssey.hagrid.serdes.StringHagridSerdes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures sending a packet through the upstream handler,
+ * with a publisher that acknowledges it immediately.
+ *
+ * @author Tobias Büser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpstreamBenchmark {
+
+    private BenchmarkHagridService service;
+
+    private HagridPacket<String> stringPacket;
+    private HagridPacket<Message> messagePacket;
+
+    @Setup
+    public void setup() throws HagridConnectionException {
+        this.service = new BenchmarkHagridService();
+        this.service.communication().registerTopic("bench-string", new StringHagridSerdes());
+        this.service.communication().registerTopic("bench-message", new MessageHagridSerdes());
+        this.service.connect();
+
+        this.stringPacket = new HagridPacket<>("bench-string", "Hello, this is Hagrid!");
+        this.messagePacket = new HagridPacket<>("bench-message", StringValue.of("Hello, this is Hagrid!"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.service.shutdown();
+    }
+
+    @Benchmark
+    public CompletableFuture<Void> sendString() throws Exception {
+        return this.service.upstream().send("bench-string", this.stringPacket);
+    }
+
+    @Benchmark
+    public CompletableFuture<Void> sendMessage() throws Exception {
+        return this.service.upstream().send("bench-message", this.messagePacket);
+    }
+
+}
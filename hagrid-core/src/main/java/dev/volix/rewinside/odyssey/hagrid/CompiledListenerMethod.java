@@ -0,0 +1,178 @@
+package dev.volix.rewinside.odyssey.hagrid;
+
+import dev.volix.rewinside.odyssey.hagrid.exception.HagridListenerExecutionException;
+import dev.volix.rewinside.odyssey.hagrid.listener.HagridListenerMethod;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A {@link HagridListenerMethod} that executes a method annotated with
+ * {@link dev.volix.rewinside.odyssey.hagrid.listener.HagridListens}.
+ * <p>
+ * The method gets looked up only once and is then turned into an implementation of a
+ * functional interface via the {@link LambdaMetafactory}, just like a method reference,
+ * so that executing it is a plain interface call the JIT can inline.
+ * The same access rules as for {@link Method#invoke(Object, Object...)} apply,
+ * so e.g. private methods can not be executed.
+ *
+ * @author Tobias Büser
+ */
+class CompiledListenerMethod implements HagridListenerMethod<Object> {
+
+    private static final MethodType LISTEN_TYPE = MethodType.methodType(void.class,
+        Object.class, HagridPacket.class, HagridResponse.class);
+
+    private final Method method;
+    private final Class<?> payloadClass;
+
+    /**
+     * The generated implementation, {@code null} if the method has to be executed through {@link #handle}.
+     */
+    private final HagridListenerMethod<Object> function;
+
+    /**
+     * Used instead of {@link #function} if the classes of the method are not visible to our
+     * class loader, which the generated class needs, or if the method can not be accessed at all.
+     * Always takes all three arguments and has the containing instance already bound to it.
+     */
+    private final MethodHandle handle;
+
+    /**
+     * @param method             The method, with the payload, the packet and the response
+     *                           as its first up to three parameters
+     * @param containingInstance The instance to execute the method on,
+     *                           ignored if the method is static
+     */
+    CompiledListenerMethod(final Method method, final Object containingInstance) {
+        this.method = method;
+        this.payloadClass = method.getParameterTypes()[0];
+
+        MethodHandle implementation;
+        try {
+            implementation = MethodHandles.lookup().unreflect(method);
+        } catch (final IllegalAccessException ex) {
+            // like before, the listener gets registered but fails on every packet
+            this.function = null;
+            this.handle = MethodHandles.dropArguments(
+                MethodHandles.throwException(void.class, IllegalAccessException.class).bindTo(ex),
+                0, LISTEN_TYPE.parameterList());
+            return;
+        }
+
+        HagridListenerMethod<Object> function = null;
+        if (isVisible(method.getDeclaringClass()) && isVisible(this.payloadClass)) {
+            try {
+                function = compile(method, containingInstance, implementation);
+            } catch (final Throwable ex) {
+                // the method handle still works
+            }
+        }
+        this.function = function;
+        if (function != null) {
+            this.handle = null;
+            return;
+        }
+
+        if (!Modifier.isStatic(method.getModifiers())) {
+            implementation = implementation.bindTo(containingInstance);
+        }
+
+        // ignore the arguments that the method does not declare
+        final int parameterCount = method.getParameterCount();
+        if (parameterCount == 1) {
+            implementation = MethodHandles.dropArguments(implementation, 1, HagridPacket.class, HagridResponse.class);
+        } else if (parameterCount == 2) {
+            implementation = MethodHandles.dropArguments(implementation, 2, HagridResponse.class);
+        }
+        this.handle = implementation.asType(LISTEN_TYPE);
+    }
+
+    @Override
+    public void listen(final Object payload, final HagridPacket<Object> req, final HagridResponse response) {
+        try {
+            if (this.function != null) {
+                this.function.listen(payload, req, response);
+            } else {
+                this.handle.invokeExact(payload, (HagridPacket) req, response);
+            }
+        } catch (final Error error) {
+            throw error;
+        } catch (final Throwable ex) {
+            throw new HagridListenerExecutionException(req.getTopic(), this.payloadClass, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.method.getDeclaringClass().getName() + "#" + this.method.getName();
+    }
+
+    /**
+     * Generates an implementation of {@link Consumer}, {@link BiConsumer} or {@link HagridListenerMethod},
+     * depending on the amount of parameters of the method, which executes the method.
+     */
+    @SuppressWarnings("unchecked")
+    private static HagridListenerMethod<Object> compile(final Method method, final Object containingInstance,
+                                                        final MethodHandle implementation) throws Throwable {
+        final int parameterCount = method.getParameterCount();
+        final Class<?> functionalInterface;
+        final String name;
+        final MethodType erasedType;
+        if (parameterCount == 1) {
+            functionalInterface = Consumer.class;
+            name = "accept";
+            erasedType = MethodType.methodType(void.class, Object.class);
+        } else if (parameterCount == 2) {
+            functionalInterface = BiConsumer.class;
+            name = "accept";
+            erasedType = MethodType.methodType(void.class, Object.class, Object.class);
+        } else {
+            functionalInterface = HagridListenerMethod.class;
+            name = "listen";
+            erasedType = LISTEN_TYPE;
+        }
+
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        final MethodType factoryType = isStatic
+            ? MethodType.methodType(functionalInterface)
+            : MethodType.methodType(functionalInterface, method.getDeclaringClass());
+
+        // e.g. a primitive payload has to be unboxed from its wrapper
+        final MethodType instantiatedType = MethodType.methodType(void.class, method.getParameterTypes())
+            .changeParameterType(0, MethodType.methodType(method.getParameterTypes()[0]).wrap().returnType());
+
+        final CallSite site = LambdaMetafactory.metafactory(MethodHandles.lookup(), name, factoryType,
+            erasedType, implementation, instantiatedType);
+        final Object function = isStatic ? site.getTarget().invoke() : site.getTarget().invoke(containingInstance);
+
+        if (parameterCount == 1) {
+            final Consumer<Object> consumer = (Consumer<Object>) function;
+            return (payload, req, response) -> consumer.accept(payload);
+        } else if (parameterCount == 2) {
+            final BiConsumer<Object, HagridPacket<Object>> consumer = (BiConsumer<Object, HagridPacket<Object>>) function;
+            return (payload, req, response) -> consumer.accept(payload, req);
+        }
+        return (HagridListenerMethod<Object>) function;
+    }
+
+    /**
+     * @return If the class can be referenced by the classes we generate, which are
+     * defined by our class loader, e.g. not if it comes from a child class loader of a plugin.
+     */
+    private static boolean isVisible(final Class<?> type) {
+        if (type.isPrimitive()) return true;
+        try {
+            return Class.forName(type.getName(), false, CompiledListenerMethod.class.getClassLoader()) == type;
+        } catch (final ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+}
@@ -3,7 +3,6 @@ package dev.volix.rewinside.odyssey.hagrid;
 import dev.volix.rewinside.odyssey.hagrid.exception.HagridListenerExecutionException;
 import dev.volix.rewinside.odyssey.hagrid.listener.Direction;
 import dev.volix.rewinside.odyssey.hagrid.listener.HagridListener;
-import dev.volix.rewinside.odyssey.hagrid.listener.HagridListenerMethod;
 import dev.volix.rewinside.odyssey.hagrid.listener.HagridListens;
 import dev.volix.rewinside.odyssey.hagrid.listener.HagridResponds;
 import dev.volix.rewinside.odyssey.hagrid.listener.Priority;
@@ -13,20 +12,22 @@ import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
 import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopicGroup;
 import dev.volix.rewinside.odyssey.hagrid.topic.TopicProperties;
 import dev.volix.rewinside.odyssey.hagrid.util.DaemonThreadFactory;
-import java.lang.reflect.InvocationTargetException;
+import dev.volix.rewinside.odyssey.hagrid.util.HashedWheelTimer;
+import dev.volix.rewinside.odyssey.hagrid.util.TopicTrie;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * @author Tobias Büser
@@ -37,16 +38,86 @@ public class HagridCommunicationHandler implements CommunicationHandler {
 
     private static final Pattern TOPIC_REGEX = Pattern.compile("^(?:\\w+)(?:-(?:\\w+|\\*))*$");
 
-    private final Map<String, HagridTopicGroup> topicGroupRegistry = new HashMap<>();
-    private final Map<Pattern, List<HagridListener>> listenerRegistry = new ConcurrentHashMap<>();
+    /**
+     * The maximum amount of topic names to cache the resolved topic of,
+     * as the names of received packets could be anything.
+     */
+    private static final int MAX_RESOLVED_TOPICS = 4096;
+
+    private final Map<String, HagridTopicGroup> topicGroupRegistry = new ConcurrentHashMap<>();
+
+    /**
+     * The registered topic that fits best for a topic name, see {@link #getTopic(String)}.
+     * Gets replaced as a whole as soon as the registered topics change, so that a
+     * lookup which races with that can only write into the replaced cache.
+     */
+    private volatile Map<String, HagridTopic<?>> resolvedTopics = new ConcurrentHashMap<>();
+
+    /**
+     * All registered listeners by their topic pattern, so that the listeners
+     * for a topic can be looked up without matching the topic against every pattern.
+     * The listeners of a pattern are kept in an immutable array sorted by priority,
+     * which gets replaced as a whole on every change.
+     */
+    private final TopicTrie<HagridListener> listenerRegistry = new TopicTrie<>(
+        Comparator.comparingInt(HagridListener::getPriority), HagridListener[]::new);
+
+    /**
+     * Requests that wait for a response, mapped by the id of the request packet.
+     */
+    private final Map<String, PendingRequest<?>> requestRegistry = new ConcurrentHashMap<>();
+
+    /**
+     * The scheduled timeouts of all registered listeners with a timeout.
+     * Listeners do not implement equals, so this is effectively an identity map.
+     */
+    private final Map<HagridListener, HashedWheelTimer.Timeout> listenerTimeouts = new ConcurrentHashMap<>();
+
+    private final HashedWheelTimer timer;
+
+    /**
+     * Executes the timeouts of listeners and requests. The timer only hands them over,
+     * as the timeout callbacks and the stages of the request futures are user code,
+     * which would delay every other timeout of the service if it ran on the timer thread.
+     */
+    private final ThreadPoolExecutor timeoutThreadPool;
+
+    /**
+     * Listeners that take longer than this get logged, as they stall
+     * every other packet that waits for the same listener thread.
+     * Is {@code 0} if disabled.
+     */
+    private final long slowListenerThresholdNanos;
+
+    public HagridCommunicationHandler(final HagridService service, final HashedWheelTimer timer) {
+        this.service = service;
+        this.timer = timer;
+        this.slowListenerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            service.getConfiguration().getInt(HagridConfig.LISTENER_SLOW_THRESHOLD_IN_MILLIS));
+
+        this.timeoutThreadPool = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new DaemonThreadFactory("Timeout-"));
+        this.timeoutThreadPool.allowCoreThreadTimeOut(true);
+    }
 
     public HagridCommunicationHandler(final HagridService service) {
-        this.service = service;
+        this(service, HashedWheelTimer.getDefault());
+    }
 
-        final ScheduledExecutorService threadPool = Executors.newScheduledThreadPool(1, new DaemonThreadFactory());
+    /**
+     * Stops the thread of this handler after the timeouts that are already due have been executed.
+     */
+    public void shutdown() {
+        this.timeoutThreadPool.shutdown();
+    }
 
-        final int cleanupDelayInSeconds = service.getConfiguration().getInt(HagridConfig.LISTENER_CLEANUP_DELAY_IN_SECONDS);
-        threadPool.scheduleAtFixedRate(new CleanupTask(this.listenerRegistry), cleanupDelayInSeconds, cleanupDelayInSeconds, TimeUnit.SECONDS);
+    private void executeTimeout(final Runnable timeout) {
+        try {
+            this.timeoutThreadPool.execute(timeout);
+        } catch (final RejectedExecutionException ex) {
+            // the timer is stopped after the handler, so we still have to handle the last ones
+            timeout.run();
+        }
     }
 
     private String getTopicPrefix(final String pattern) {
@@ -61,6 +132,18 @@ public class HagridCommunicationHandler implements CommunicationHandler {
 
     @Override
     public <T> HagridTopic<T> getTopic(final String pattern) {
+        final Map<String, HagridTopic<?>> resolvedTopics = this.resolvedTopics;
+        final HagridTopic<?> resolvedTopic = resolvedTopics.get(pattern);
+        if (resolvedTopic != null) return (HagridTopic<T>) resolvedTopic;
+
+        final HagridTopic<T> topic = this.resolveTopic(pattern);
+        if (topic != null && resolvedTopics.size() < MAX_RESOLVED_TOPICS) {
+            resolvedTopics.put(pattern, topic);
+        }
+        return topic;
+    }
+
+    private <T> HagridTopic<T> resolveTopic(final String pattern) {
         if (!TOPIC_REGEX.matcher(pattern).matches()) {
             throw new IllegalArgumentException("pattern must be in kebab-case");
         }
@@ -76,7 +159,7 @@ public class HagridCommunicationHandler implements CommunicationHandler {
     }
 
     @Override
-    public void registerTopic(final String pattern, final HagridSerdes<?> serdes, final TopicProperties properties) {
+    public synchronized void registerTopic(final String pattern, final HagridSerdes<?> serdes, final TopicProperties properties) {
         if (!TOPIC_REGEX.matcher(pattern).matches()) {
             throw new IllegalArgumentException("pattern must be in kebab-case");
         }
@@ -91,12 +174,13 @@ public class HagridCommunicationHandler implements CommunicationHandler {
         } else {
             topicGroup.add(topic);
         }
+        this.resolvedTopics = new ConcurrentHashMap<>();
 
         this.service.downstream().addToSubscriber(topic);
     }
 
     @Override
-    public void unregisterTopic(final String pattern) {
+    public synchronized void unregisterTopic(final String pattern) {
         if (!TOPIC_REGEX.matcher(pattern).matches()) return;
         final String prefix = this.getTopicPrefix(pattern);
 
@@ -106,19 +190,22 @@ public class HagridCommunicationHandler implements CommunicationHandler {
         final HagridTopic<?> topic = topicGroup.getTopicExactly(pattern);
         if (topic == null) return;
         topicGroup.remove(pattern);
+        this.resolvedTopics = new ConcurrentHashMap<>();
 
         this.service.downstream().removeFromSubscriber(topic);
     }
 
     @Override
     public <T> void executeListeners(final String topic, final Direction direction, final HagridPacket<T> packet) {
-        final Optional<T> payloadOptional = packet.getPayload();
-
-        final Class<?> payloadClass = payloadOptional.<Class<?>>map(T::getClass).orElse(null);
-        final List<HagridListener> listeners = new ArrayList<>(this.getListener(topic, payloadClass));
+        final T packetPayload = packet.getPayloadOrNull();
+        final Class<?> payloadClass = packetPayload == null ? null : packetPayload.getClass();
 
-        listeners.sort(Comparator.comparingInt(HagridListener::getPriority));
+        // already sorted by priority
+        final HagridListener[] listeners = this.listenerRegistry.match(topic);
         for (final HagridListener listener : listeners) {
+            if (!this.acceptsPayload(listener, payloadClass)) {
+                continue;
+            }
             if (listener.getDirection() != null && listener.getDirection() != direction) {
                 continue;
             }
@@ -128,10 +215,11 @@ public class HagridCommunicationHandler implements CommunicationHandler {
 
             final HagridResponse response = new HagridResponse();
             final T payload = listener.getPayloadClass() == null
-                || listener.getPayloadClass() == Void.class ? null : payloadOptional.orElse(null);
+                || listener.getPayloadClass() == Void.class ? null : packetPayload;
 
             Throwable executionError = null;
 
+            final long start = System.nanoTime();
             try {
                 listener.execute(payload, packet, response);
             } catch (final HagridListenerExecutionException ex) {
@@ -139,6 +227,15 @@ public class HagridCommunicationHandler implements CommunicationHandler {
 
                 this.service.getLogger().warn("error during listener execution", ex);
             }
+            final long duration = System.nanoTime() - start;
+            listener.recordLatency(duration);
+            this.service.metrics().listenerExecuted(topic, direction, duration, executionError != null);
+
+            if (this.slowListenerThresholdNanos > 0 && duration > this.slowListenerThresholdNanos) {
+                this.service.getLogger().warn("Slow listener {} took {}ms for a packet in topic {} ({})",
+                    listener, TimeUnit.NANOSECONDS.toMillis(duration), topic, listener.getLatency());
+                this.service.metrics().slowListener(topic, listener, duration);
+            }
 
             if (executionError != null && listener.isResponsive()) {
                 // some error during execution, but the listener
@@ -169,12 +266,12 @@ public class HagridCommunicationHandler implements CommunicationHandler {
 
     @Override
     public boolean hasListener(final String topic, final Class<?> payloadClass) {
-        final Pattern pattern = HagridTopic.getTopicAsRegex(topic);
-        final List<HagridListener> listeners = this.listenerRegistry.get(pattern);
-        if (listeners == null || listeners.isEmpty()) return false;
-
-        return listeners.stream().anyMatch(hagridListener ->
-            hagridListener.getPayloadClass() == HagridPacket.class || hagridListener.getPayloadClass().equals(payloadClass));
+        for (final HagridListener listener : this.listenerRegistry.get(topic)) {
+            if (listener.getPayloadClass() == HagridPacket.class || listener.getPayloadClass().equals(payloadClass)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -182,14 +279,22 @@ public class HagridCommunicationHandler implements CommunicationHandler {
         if (!TOPIC_REGEX.matcher(listener.getTopic()).matches()) {
             throw new IllegalArgumentException("listener topic needs to be in kebab-case");
         }
-        final Pattern pattern = HagridTopic.getTopicAsRegex(listener.getTopic());
+        listener.setRegisteredAt(System.currentTimeMillis());
 
-        final List<HagridListener> listeners = this.listenerRegistry.getOrDefault(pattern, new ArrayList<>());
-        listeners.add(listener);
+        // schedule the timeout before the listener can be executed,
+        // so that an unregistration can always cancel it
+        if (listener.getTimeoutInSeconds() > 0) {
+            this.listenerTimeouts.put(listener, this.timer.schedule(() -> {
+                // only time out if it did not get unregistered in the meantime
+                if (this.listenerTimeouts.remove(listener) == null) return;
 
-        this.listenerRegistry.put(pattern, listeners);
+                this.unregisterListener(listener);
+                this.service.metrics().listenerTimedOut(listener.getTopic());
+                this.executeTimeout(listener::executeTimeout);
+            }, listener.getTimeoutInSeconds(), TimeUnit.SECONDS));
+        }
 
-        listener.setRegisteredAt(System.currentTimeMillis());
+        this.listenerRegistry.add(listener.getTopic(), listener);
     }
 
     @Override
@@ -227,103 +332,143 @@ public class HagridCommunicationHandler implements CommunicationHandler {
             final boolean isResponsive = respondsClassAnnotation != null
                 || declaredMethod.getAnnotation(HagridResponds.class) != null;
 
-            this.registerListener(HagridListener.builder(new HagridListenerMethod<Object>() {
-                @Override
-                public void listen(final Object payload, final HagridPacket<Object> req, final HagridResponse response) {
-                    try {
-                        if (parameterCount == 1) {
-                            declaredMethod.invoke(containingInstance, payload);
-                        } else if (parameterCount == 2) {
-                            declaredMethod.invoke(containingInstance, payload, req);
-                        } else {
-                            declaredMethod.invoke(containingInstance, payload, req, response);
-                        }
-                    } catch (final InvocationTargetException e) {
-                        throw new HagridListenerExecutionException(req.getTopic(), parameter, e.getCause());
-                    } catch (final Exception e) {
-                        throw new HagridListenerExecutionException(req.getTopic(), parameter, e);
-                    }
-                }
-            }).topic(actualTopic).direction(direction).payloadClass(parameter)
+            this.registerListener(HagridListener.builder(new CompiledListenerMethod(declaredMethod, containingInstance))
+                .topic(actualTopic).direction(direction).payloadClass(parameter)
                 .priority(priority).responsive(isResponsive).build());
         }
     }
 
     @Override
     public void unregisterListener(final HagridListener listener) {
-        final Pattern pattern = HagridTopic.getTopicAsRegex(listener.getTopic());
-        final List<HagridListener> listeners = this.listenerRegistry.get(pattern);
-        if (listeners == null) return;
-        listeners.remove(listener);
+        this.listenerRegistry.remove(listener.getTopic(), listener);
+        this.cancelTimeout(listener);
     }
 
     @Override
     public void unregisterListener(final String topic, final Class<?> payloadClass) {
-        final Pattern pattern = HagridTopic.getTopicAsRegex(topic);
-        final List<HagridListener> listeners = this.listenerRegistry.get(pattern);
-        if (listeners == null) return;
-        listeners.removeIf(hagridListener -> hagridListener.getPayloadClass().equals(payloadClass));
+        this.listenerRegistry.removeIf(topic, hagridListener -> {
+            if (!hagridListener.getPayloadClass().equals(payloadClass)) return false;
+            this.cancelTimeout(hagridListener);
+            return true;
+        });
     }
 
     @Override
     public void unregisterListener(final String topic) {
-        final Pattern pattern = HagridTopic.getTopicAsRegex(topic);
-        this.listenerRegistry.entrySet().removeIf(stringListEntry -> stringListEntry.getKey().equals(pattern));
+        this.listenerRegistry.removeIf(topic, hagridListener -> {
+            this.cancelTimeout(hagridListener);
+            return true;
+        });
+    }
+
+    private void cancelTimeout(final HagridListener listener) {
+        final HashedWheelTimer.Timeout timeout = this.listenerTimeouts.remove(listener);
+        if (timeout != null) timeout.cancel();
     }
 
     @Override
     public List<HagridListener> getListener(final String topic, final Class<?> payloadClass) {
         final List<HagridListener> listeners = new ArrayList<>();
-        for (final Pattern pattern : this.listenerRegistry.keySet()) {
-            if (pattern.matcher(topic).matches()) {
-                listeners.addAll(this.listenerRegistry.get(pattern));
+        for (final HagridListener listener : this.listenerRegistry.match(topic)) {
+            if (this.acceptsPayload(listener, payloadClass)) {
+                listeners.add(listener);
             }
         }
-        if (listeners.isEmpty()) return new ArrayList<>();
+        return listeners;
+    }
 
-        return listeners.stream()
-            .filter(hagridListener -> {
-                if (payloadClass == null) {
-                    return hagridListener.getPayloadClass() == null || hagridListener.getPayloadClass() == Void.class
-                        || hagridListener.getListenId() != null;
+    @Override
+    public List<HagridListener> getListener(final String topic) {
+        // the array is shared, so it must not be modified through the list
+        return Collections.unmodifiableList(Arrays.asList(this.listenerRegistry.get(topic)));
+    }
+
+    @Override
+    public <T> CompletableFuture<HagridPacket<T>> registerRequest(final String topic, final String requestId,
+                                                                  final Class<T> payloadClass, final int timeoutInSeconds) {
+        final PendingRequest<T> request = new PendingRequest<>(topic, requestId, payloadClass);
+        if (this.requestRegistry.putIfAbsent(requestId, request) != null) {
+            throw new IllegalStateException("there is already a request registered with id " + requestId);
+        }
+
+        if (timeoutInSeconds > 0) {
+            request.timeout = this.timer.schedule(() -> {
+                if (this.requestRegistry.remove(requestId, request)) {
+                    this.service.metrics().requestTimedOut(topic);
+                    this.executeTimeout(request::executeTimeout);
                 }
-                return hagridListener.getPayloadClass() == null
-                    || hagridListener.getPayloadClass() == Void.class
-                    || hagridListener.getPayloadClass().isAssignableFrom(payloadClass);
-            })
-            .collect(Collectors.toList());
+            }, timeoutInSeconds, TimeUnit.SECONDS);
+        }
+        return request.future;
     }
 
     @Override
-    public List<HagridListener> getListener(final String topic) {
-        final Pattern pattern = HagridTopic.getTopicAsRegex(topic);
-        return this.listenerRegistry.getOrDefault(pattern, new ArrayList<>());
+    public boolean completeRequest(final HagridPacket<?> response) {
+        final String requestId = response.getRequestId();
+        if (requestId == null || requestId.isEmpty()) return false;
+
+        final PendingRequest<?> request = this.requestRegistry.get(requestId);
+        if (request == null) return false;
+
+        final Object payload = response.getPayloadOrNull();
+        if (payload != null && request.payloadClass != null && request.payloadClass != Void.class
+            && !request.payloadClass.isAssignableFrom(payload.getClass())) {
+            // not the response we are waiting for
+            return false;
+        }
+
+        // the timeout could have been faster
+        if (!this.requestRegistry.remove(requestId, request)) return false;
+
+        if (request.timeout != null) request.timeout.cancel();
+        request.complete(response);
+        return true;
     }
 
-    private class CleanupTask implements Runnable {
+    @Override
+    public boolean hasRequest(final String requestId) {
+        return this.requestRegistry.containsKey(requestId);
+    }
 
-        private final Map<Pattern, List<HagridListener>> listenerRegistry;
+    @Override
+    public void unregisterRequest(final String requestId) {
+        final PendingRequest<?> request = this.requestRegistry.remove(requestId);
+        if (request != null && request.timeout != null) {
+            request.timeout.cancel();
+        }
+    }
 
-        public CleanupTask(final Map<Pattern, List<HagridListener>> listenerRegistry) {
-            this.listenerRegistry = listenerRegistry;
+    private boolean acceptsPayload(final HagridListener listener, final Class<?> payloadClass) {
+        if (payloadClass == null) {
+            return listener.getPayloadClass() == null || listener.getPayloadClass() == Void.class
+                || listener.getListenId() != null;
         }
+        return listener.getPayloadClass() == null
+            || listener.getPayloadClass() == Void.class
+            || listener.getPayloadClass().isAssignableFrom(payloadClass);
+    }
 
-        @Override
-        public void run() {
-            final long current = System.currentTimeMillis();
-            for (final Pattern pattern : this.listenerRegistry.keySet()) {
-                final List<HagridListener> listenersCopy = new ArrayList<>(this.listenerRegistry.get(pattern));
+    private static class PendingRequest<T> {
 
-                for (final HagridListener listener : listenersCopy) {
-                    if (listener.getTimeoutInSeconds() <= 0) continue;
-                    final long timeoutAt = listener.getRegisteredAt() + (listener.getTimeoutInSeconds() * 1000);
+        private final String topic;
+        private final String requestId;
+        private final Class<T> payloadClass;
+        private final CompletableFuture<HagridPacket<T>> future = new CompletableFuture<>();
 
-                    if (current >= timeoutAt) {
-                        HagridCommunicationHandler.this.unregisterListener(listener);
-                        listener.executeTimeout();
-                    }
-                }
-            }
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private PendingRequest(final String topic, final String requestId, final Class<T> payloadClass) {
+            this.topic = topic;
+            this.requestId = requestId;
+            this.payloadClass = payloadClass;
+        }
+
+        private void complete(final HagridPacket<?> response) {
+            this.future.complete((HagridPacket<T>) response);
+        }
+
+        private void executeTimeout() {
+            this.future.complete(new HagridPacket<>(this.topic, this.requestId, new Status(StatusCode.TIMEOUT), null));
         }
 
     }
@@ -8,22 +8,60 @@ import java.util.Properties;
  */
 public class HagridConfig extends PropertiesConfig {
 
+    public static final String MIN_SUBSCRIBER = "downstream.min_subscriber";
     public static final String MAX_SUBSCRIBER = "downstream.max_subscriber";
+    public static final String BACKPRESSURE_HIGH_WATERMARK = "downstream.backpressure.high_watermark";
+    public static final String BACKPRESSURE_LOW_WATERMARK = "downstream.backpressure.low_watermark";
+    /**
+     * @deprecated Idle packets expire on their own after {@link #IDLE_PACKET_RETENTION_DELAY_IN_SECONDS},
+     * see {@link dev.volix.rewinside.odyssey.hagrid.util.ExpiringIdSet}.
+     */
+    @Deprecated
     public static final String IDLE_PACKET_CLEANUP_DELAY_IN_SECONDS = "downstream.idle_packets.cleanup.delay";
+    public static final String REBALANCE_INTERVAL_IN_SECONDS = "downstream.rebalance.interval";
+    public static final String POLL_TIMEOUT_MIN_IN_MILLIS = "downstream.poll.timeout.min";
+    public static final String POLL_TIMEOUT_MAX_IN_MILLIS = "downstream.poll.timeout.max";
+    public static final String COMMIT_INTERVAL_IN_MILLIS = "downstream.commit.interval";
+    public static final String DECODE_THREADS = "downstream.decode.threads";
+    public static final String DECODE_QUEUE_CAPACITY = "downstream.decode.queue.capacity";
     public static final String IDLE_PACKET_RETENTION_DELAY_IN_SECONDS = "downstream.idle_packets.retention.delay";
+    public static final String UPSTREAM_CALLBACK_THREADS = "upstream.callback.threads";
     public static final String LISTENER_DEFAULT_TIMEOUT_IN_SECONDS = "listener.timeout";
+    public static final String LISTENER_THREADS = "listener.threads";
+    public static final String LISTENER_QUEUE_CAPACITY = "listener.queue.capacity";
+    public static final String LISTENER_SLOW_THRESHOLD_IN_MILLIS = "listener.slow_threshold";
+    /**
+     * @deprecated Listeners time out exactly after their timeout
+     * by the {@link dev.volix.rewinside.odyssey.hagrid.util.HashedWheelTimer}.
+     */
+    @Deprecated
     public static final String LISTENER_CLEANUP_DELAY_IN_SECONDS = "listener.cleanup.delay";
     public static final String RECONNECT_DELAY_IN_SECONDS = "connection.reconnect.delay";
+    public static final String TIMER_TICK_DURATION_IN_MILLIS = "timer.tick.duration";
 
     public HagridConfig(final Properties properties) {
         super(properties);
 
+        properties.putIfAbsent(MIN_SUBSCRIBER, "1");
         properties.putIfAbsent(MAX_SUBSCRIBER, "10");
+        properties.putIfAbsent(BACKPRESSURE_HIGH_WATERMARK, "1000");
+        properties.putIfAbsent(BACKPRESSURE_LOW_WATERMARK, "500");
         properties.putIfAbsent(IDLE_PACKET_CLEANUP_DELAY_IN_SECONDS, "5");
         properties.putIfAbsent(IDLE_PACKET_RETENTION_DELAY_IN_SECONDS, "30");
+        properties.putIfAbsent(REBALANCE_INTERVAL_IN_SECONDS, "30");
+        properties.putIfAbsent(POLL_TIMEOUT_MIN_IN_MILLIS, "10");
+        properties.putIfAbsent(POLL_TIMEOUT_MAX_IN_MILLIS, "1000");
+        properties.putIfAbsent(COMMIT_INTERVAL_IN_MILLIS, "0");
+        properties.putIfAbsent(DECODE_THREADS, "0");
+        properties.putIfAbsent(DECODE_QUEUE_CAPACITY, "1000");
+        properties.putIfAbsent(UPSTREAM_CALLBACK_THREADS, "2");
         properties.putIfAbsent(LISTENER_DEFAULT_TIMEOUT_IN_SECONDS, "10");
+        properties.putIfAbsent(LISTENER_THREADS, "1");
+        properties.putIfAbsent(LISTENER_QUEUE_CAPACITY, "0");
+        properties.putIfAbsent(LISTENER_SLOW_THRESHOLD_IN_MILLIS, "500");
         properties.putIfAbsent(LISTENER_CLEANUP_DELAY_IN_SECONDS, "2");
         properties.putIfAbsent(RECONNECT_DELAY_IN_SECONDS, "10");
+        properties.putIfAbsent(TIMER_TICK_DURATION_IN_MILLIS, "10");
     }
 
 }
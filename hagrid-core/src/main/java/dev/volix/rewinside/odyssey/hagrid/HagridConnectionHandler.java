@@ -56,6 +56,17 @@ public abstract class HagridConnectionHandler implements ConnectionHandler {
         this.setStatus(ConnectionHandler.Status.INACTIVE);
     }
 
+    /**
+     * Stops trying to reconnect and the thread that does so.
+     */
+    public void shutdown() {
+        if (this.reconnectTask != null && this.reconnectTask.isRunning()) {
+            this.reconnectTask.stop();
+            this.reconnectTask = null;
+        }
+        this.threadPool.shutdownNow();
+    }
+
     @Override
     public boolean isActive() {
         this.statusLock.lock();
@@ -84,6 +95,7 @@ public abstract class HagridConnectionHandler implements ConnectionHandler {
             } finally {
                 this.statusLock.unlock();
             }
+            this.service.metrics().connectionStatusChanged(Status.INACTIVE);
 
             if (this.reconnectTask != null && this.reconnectTask.isRunning()) return;
             final int delayInSeconds = this.service.getConfiguration().getInt(HagridConfig.RECONNECT_DELAY_IN_SECONDS);
@@ -97,12 +109,17 @@ public abstract class HagridConnectionHandler implements ConnectionHandler {
     public void handleSuccess() {
         if (this.retries > 0) this.retries = 0;
 
+        boolean changed = false;
         this.statusLock.lock();
         try {
-            if (this.status != Status.ACTIVE) this.status = Status.ACTIVE;
+            if (this.status != Status.ACTIVE) {
+                this.status = Status.ACTIVE;
+                changed = true;
+            }
         } finally {
             this.statusLock.unlock();
         }
+        if (changed) this.service.metrics().connectionStatusChanged(Status.ACTIVE);
 
         this.lastSuccess = System.currentTimeMillis();
 
@@ -119,12 +136,15 @@ public abstract class HagridConnectionHandler implements ConnectionHandler {
 
     @Override
     public void setStatus(final Status status) {
+        final Status previous;
         this.statusLock.lock();
         try {
+            previous = this.status;
             this.status = status;
         } finally {
             this.statusLock.unlock();
         }
+        if (previous != status) this.service.metrics().connectionStatusChanged(status);
 
         this.retries = 0;
     }
@@ -153,6 +173,7 @@ public abstract class HagridConnectionHandler implements ConnectionHandler {
 
             try {
                 HagridConnectionHandler.this.retries++;
+                HagridConnectionHandler.this.service.metrics().reconnectAttempted();
                 HagridConnectionHandler.this.reconnect();
             } catch (final HagridConnectionException e) {
                 // still not able to connect ..
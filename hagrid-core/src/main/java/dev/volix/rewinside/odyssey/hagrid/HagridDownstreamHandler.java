@@ -1,18 +1,33 @@
 package dev.volix.rewinside.odyssey.hagrid;
 
+import com.google.protobuf.ByteString;
 import dev.volix.rewinside.odyssey.hagrid.listener.Direction;
 import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
 import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
 import dev.volix.rewinside.odyssey.hagrid.topic.TopicProperties;
 import dev.volix.rewinside.odyssey.hagrid.util.DaemonThreadFactory;
+import dev.volix.rewinside.odyssey.hagrid.util.EwmaRate;
+import dev.volix.rewinside.odyssey.hagrid.util.HashedWheelTimer;
+import dev.volix.rewinside.odyssey.hagrid.util.KeyedExecutor;
 import dev.volix.rewinside.odyssey.hagrid.util.StoppableTask;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
@@ -20,27 +35,116 @@ import java.util.function.Supplier;
  */
 public class HagridDownstreamHandler implements DownstreamHandler {
 
+    /**
+     * Subscribers are only rebalanced, if the busiest one receives more than this
+     * per second and at least {@link #MIN_REBALANCE_IMBALANCE} times the least busy one,
+     * so that topics do not move back and forth because of small fluctuations.
+     */
+    private static final double MIN_REBALANCE_LOAD = 100;
+    private static final double MIN_REBALANCE_IMBALANCE = 1.5;
+
+    /**
+     * How much the last interval weighs into the measured rates of the topics.
+     */
+    private static final double LOAD_ALPHA = 0.5;
+
+    /**
+     * How long {@link #shutdown()} waits for the subscribers to stop polling.
+     */
+    private static final int SHUTDOWN_TIMEOUT_IN_SECONDS = 5;
+
     private final HagridService service;
     private final Supplier<HagridSubscriber> createSubscriberFunction;
 
+    private final int minSubscriber;
     private final int maxSubscriber;
     private final ExecutorService subscriberThreadPool;
-    private final ExecutorService listenerThreadPool;
 
-    private final List<ConsumerTask> consumerTasks = new ArrayList<>();
-    private final Map<HagridTopic<?>, ConsumerTask> topicsToConsumer = new HashMap<>();
-
-    public HagridDownstreamHandler(final HagridService service, final Supplier<HagridSubscriber> createSubscriberFunction) {
+    /**
+     * Executes the listeners of packets with the same topic and key in order,
+     * but packets of different topics or keys in parallel.
+     */
+    private final KeyedExecutor listenerThreadPool;
+
+    /**
+     * Decodes the polled records in parallel, so that deserializing the payloads
+     * can overlap with polling. Is {@code null} if the records are decoded
+     * on the subscriber thread itself.
+     */
+    private final ExecutorService decodeThreadPool;
+
+    /**
+     * If a topic has more packets than this waiting for their listeners, the subscriber pauses
+     * fetching that topic until there are only {@link #lowWatermark} packets of it left.
+     * Other topics of the same subscriber are still fetched in the meantime.
+     */
+    private final int highWatermark;
+    private final int lowWatermark;
+
+    private final List<ConsumerTask> consumerTasks = new CopyOnWriteArrayList<>();
+    private final Map<HagridTopic<?>, ConsumerTask> topicsToConsumer = new ConcurrentHashMap<>();
+
+    /**
+     * The measured rates of all subscribed topics, which decide on which
+     * subscriber a topic is placed.
+     */
+    private final Map<HagridTopic<?>, TopicLoad> topicLoads = new ConcurrentHashMap<>();
+
+    private final HashedWheelTimer timer;
+    private final int rebalanceIntervalInSeconds;
+    private HashedWheelTimer.Timeout rebalanceTimeout;
+    private long lastRebalance = System.nanoTime();
+
+    public HagridDownstreamHandler(final HagridService service, final Supplier<HagridSubscriber> createSubscriberFunction,
+                                   final HashedWheelTimer timer) {
         this.service = service;
         this.createSubscriberFunction = createSubscriberFunction;
+        this.timer = timer;
+        this.rebalanceIntervalInSeconds = service.getConfiguration().getInt(HagridConfig.REBALANCE_INTERVAL_IN_SECONDS);
+
+        this.maxSubscriber = Math.max(service.getConfiguration().getInt(HagridConfig.MAX_SUBSCRIBER), 1);
+        this.minSubscriber = Math.max(Math.min(service.getConfiguration().getInt(HagridConfig.MIN_SUBSCRIBER), this.maxSubscriber), 1);
+
+        // threads of stopped subscribers are not kept around, a stopping subscriber
+        // can still occupy its thread for a moment, so that a new one has to wait
+        final ThreadPoolExecutor subscriberThreadPool = new ThreadPoolExecutor(this.maxSubscriber, this.maxSubscriber,
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DaemonThreadFactory("Subscriber-"));
+        subscriberThreadPool.allowCoreThreadTimeOut(true);
+        this.subscriberThreadPool = subscriberThreadPool;
+        this.listenerThreadPool = new KeyedExecutor(
+            service.getConfiguration().getInt(HagridConfig.LISTENER_THREADS),
+            service.getConfiguration().getInt(HagridConfig.LISTENER_QUEUE_CAPACITY),
+            new DaemonThreadFactory("Listener-"));
+
+        final int decodeThreads = service.getConfiguration().getInt(HagridConfig.DECODE_THREADS);
+        if (decodeThreads > 0) {
+            // if the queue is full, the subscriber thread decodes the record itself,
+            // so that it can not poll faster than the records are decoded.
+            this.decodeThreadPool = new ThreadPoolExecutor(decodeThreads, decodeThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(service.getConfiguration().getInt(HagridConfig.DECODE_QUEUE_CAPACITY), 1)),
+                new DaemonThreadFactory("Decoder-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.decodeThreadPool = null;
+        }
+
+        service.metrics().registerQueue("listener", this.listenerThreadPool::getQueueSize);
+        service.metrics().registerQueue("pending", this::getPendingPackets);
+        if (this.decodeThreadPool != null) {
+            final ThreadPoolExecutor decodeExecutor = (ThreadPoolExecutor) this.decodeThreadPool;
+            service.metrics().registerQueue("decode", () -> decodeExecutor.getQueue().size());
+        }
+
+        this.highWatermark = service.getConfiguration().getInt(HagridConfig.BACKPRESSURE_HIGH_WATERMARK);
+        this.lowWatermark = Math.min(this.highWatermark,
+            service.getConfiguration().getInt(HagridConfig.BACKPRESSURE_LOW_WATERMARK));
+    }
 
-        this.maxSubscriber = service.getConfiguration().getInt(HagridConfig.MAX_SUBSCRIBER);
-        this.subscriberThreadPool = Executors.newFixedThreadPool(this.maxSubscriber, new DaemonThreadFactory("Subscriber-"));
-        this.listenerThreadPool = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Listener-"));
+    public HagridDownstreamHandler(final HagridService service, final Supplier<HagridSubscriber> createSubscriberFunction) {
+        this(service, createSubscriberFunction, HashedWheelTimer.getDefault());
     }
 
     @Override
-    public void connect() {
+    public synchronized void connect() {
         if (this.topicsToConsumer.isEmpty()) return;
         final List<HagridTopic<?>> topics = new ArrayList<>(this.topicsToConsumer.keySet());
 
@@ -51,57 +155,210 @@ public class HagridDownstreamHandler implements DownstreamHandler {
     }
 
     @Override
-    public void disconnect() {
-        for (final ConsumerTask task : this.topicsToConsumer.values()) {
+    public synchronized void disconnect() {
+        if (this.rebalanceTimeout != null) {
+            this.rebalanceTimeout.cancel();
+            this.rebalanceTimeout = null;
+        }
+
+        for (final ConsumerTask task : this.consumerTasks) {
             if (!task.isRunning()) continue;
             task.stop();
         }
     }
 
+    /**
+     * Stops all subscribers and the threads of this handler, after the packets that
+     * are already received got handled. The handler can not be used anymore afterwards.
+     */
+    public void shutdown() {
+        this.disconnect();
+
+        // the subscribers could still hand records to the decoder and listeners while stopping
+        this.subscriberThreadPool.shutdown();
+        try {
+            if (!this.subscriberThreadPool.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+                this.service.getLogger().warn("Subscribers did not stop within {} seconds", SHUTDOWN_TIMEOUT_IN_SECONDS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (this.decodeThreadPool != null) this.decodeThreadPool.shutdown();
+        this.listenerThreadPool.shutdown();
+    }
+
     @Override
-    public void receive(final String topic, final HagridPacket<?> packet) {
-        this.service.getLogger().trace("Received packet: {}",
-            packet == null ? "null"
-                : packet.toString().replaceAll("\n", ""));
-        this.listenerThreadPool.execute(() -> {
+    public void receive(final String topic, final String key, final HagridPacket<?> packet) {
+        this.receive(topic, -1, -1, key, packet, null);
+    }
+
+    /**
+     * @param onHandled Executed as soon as the listeners have been executed, can be {@code null}.
+     */
+    private void receive(final String topic, final int partition, final long offset, final String key,
+                         final HagridPacket<?> packet, final HandledCallback onHandled) {
+        if (this.service.getLogger().isTraceEnabled()) {
+            this.service.getLogger().trace("Received packet: {}",
+                packet == null ? "null"
+                    : packet.toString().replaceAll("\n", ""));
+        }
+
+        final int hash = 31 * topic.hashCode() + (key == null ? 0 : key.hashCode());
+        this.listenerThreadPool.execute(hash, () -> {
             try {
+                // responses to our own requests are matched by their request id first
+                this.service.communication().completeRequest(packet);
+
                 this.service.communication().executeListeners(topic, Direction.DOWNSTREAM, packet);
             } catch (final Exception ex) {
                 this.service.getLogger().warn("error during listener execution", ex);
+            } finally {
+                if (onHandled != null) onHandled.handled(topic, partition, offset);
             }
         });
     }
 
+    /**
+     * Decodes a record that the subscriber polled into a packet, which can
+     * then be passed on to {@link #receive(String, String, HagridPacket)}.
+     *
+     * @param record The polled record
+     *
+     * @return The packet or {@code null}, if the record should not be received,
+     * e.g. because the topic is not registered or the packet is stale.
+     * Such a record is skipped on its own, the records polled after it are still received.
+     */
+    public HagridPacket<?> decode(final HagridSubscriber.Record record) {
+        return this.decode(record.getTopic(), record.getPacket(), record.getTimestamp());
+    }
+
+    /**
+     * @see #decode(HagridSubscriber.Record)
+     */
+    public HagridPacket<?> decode(final String recordTopic, final Packet packet, final long timestamp) {
+        final long start = System.nanoTime();
+        final HagridPacket<?> hagridPacket = this.decodePacket(recordTopic, packet, timestamp);
+
+        if (hagridPacket == null) {
+            this.service.metrics().packetSkipped(recordTopic);
+        } else {
+            this.service.metrics().packetReceived(recordTopic, System.nanoTime() - start);
+        }
+        return hagridPacket;
+    }
+
+    private HagridPacket<?> decodePacket(final String recordTopic, final Packet packet, final long timestamp) {
+        final HagridTopic<?> registeredTopic = this.service.communication().getTopic(recordTopic);
+        if (registeredTopic == null) {
+            // we just silently do nothing ..
+            return null;
+        }
+        final TopicProperties topicProperties = registeredTopic.getProperties();
+
+        if (!topicProperties.receivesStalePackets()
+            && timestamp < this.service.connection().getLastSuccess()) {
+            // packet is stale and we do not want stale packets
+            return null;
+        }
+
+        if (!topicProperties.receivesSentPackets()
+            && this.service.upstream().isIdling(packet.getId())) {
+            // we sent this packet but we do not want sent packets.
+            return null;
+        }
+
+        final Packet.Payload packetPayload = packet.getPayload();
+        final ByteString payloadData = packetPayload.getValue();
+
+        Object payload = null;
+        try {
+            payload = payloadData.isEmpty() ? null :
+                registeredTopic.getSerdes().deserialize(
+                    packetPayload.getTypeUrl(),
+                    payloadData
+                );
+        } catch (final Exception ex) {
+            // if an error occurs during the serdes
+            this.service.getLogger().warn("Error during deserialization", ex);
+            return null;
+        }
+        final Status status = new Status(packet.getStatus().getCode(),
+            packet.getStatus().getSubcode(), packet.getStatus().getMessage());
+
+        return new HagridPacket<>(
+            recordTopic,
+            packet.getId(),
+            packet.getRequestId(),
+            status,
+            payload);
+    }
+
     @Override
-    public void addToNewSubscriber(final HagridTopic<?> topic) {
-        if (this.consumerTasks.size() >= this.maxSubscriber) {
+    public synchronized void addToNewSubscriber(final HagridTopic<?> topic) {
+        if (this.getRunningTasks().size() >= this.maxSubscriber) {
             throw new IllegalStateException("reached maximum of parallel consumer tasks");
         }
+        final ConsumerTask task = this.startTask(topic);
+        this.topicsToConsumer.put(topic, task);
+    }
+
+    /**
+     * @param topic The topic to subscribe to right away, can be {@code null}
+     */
+    private ConsumerTask startTask(final HagridTopic<?> topic) {
         final HagridSubscriber subscriber = this.createSubscriberFunction.get();
         subscriber.open();
-        subscriber.subscribe(topic);
 
         final ConsumerTask task = new ConsumerTask(this.service, subscriber);
+        if (topic != null) {
+            subscriber.subscribe(topic);
+            task.topics.add(topic);
+        }
         this.subscriberThreadPool.execute(task);
 
         this.consumerTasks.add(task);
-        this.topicsToConsumer.put(topic, task);
+        this.scheduleRebalance();
+        return task;
     }
 
+    /**
+     * Topics that should run in parallel get a new subscriber, as long as there are
+     * less than {@link HagridConfig#MAX_SUBSCRIBER}. All other topics are placed on the subscriber
+     * with the lowest measured load. Topics that did not receive anything yet do not count,
+     * so that a lot of cold topics can share a subscriber, while hot topics get spread.
+     * <p>
+     * As idle subscribers get merged by {@link #rebalance()}, running in parallel
+     * is only a hint for the initial placement.
+     */
     @Override
-    public void addToSubscriber(final HagridTopic<?> topic) {
-        if (this.consumerTasks.isEmpty() || topic.getProperties().shouldRunInParallel()) {
+    public synchronized void addToSubscriber(final HagridTopic<?> topic) {
+        final List<ConsumerTask> tasks = this.getRunningTasks();
+        if (topic.getProperties().shouldRunInParallel() && tasks.size() < this.maxSubscriber) {
             this.addToNewSubscriber(topic);
             return;
         }
 
-        final List<ConsumerTask> tasks = new ArrayList<>(this.consumerTasks);
-        tasks.sort(Comparator.comparingInt(o -> o.getSubscriber().getTopics().size()));
-
-        final ConsumerTask lessLoadTask = tasks.get(0);
-        lessLoadTask.getSubscriber().subscribe(topic);
+        // otherwise the topic shares a subscriber with other topics, which is only paused
+        // for this topic, if its listeners can not keep up. The listener threads are still shared
+        // by all topics, see HagridConfig#LISTENER_THREADS
+        ConsumerTask leastLoadedTask = null;
+        double leastLoad = Double.MAX_VALUE;
+        for (final ConsumerTask task : tasks) {
+            final double load = this.getLoad(task);
+            if (leastLoadedTask == null || load < leastLoad
+                || (load == leastLoad && task.topics.size() < leastLoadedTask.topics.size())) {
+                leastLoadedTask = task;
+                leastLoad = load;
+            }
+        }
 
-        this.topicsToConsumer.put(topic, lessLoadTask);
+        if (leastLoadedTask == null) {
+            this.addToNewSubscriber(topic);
+            return;
+        }
+        leastLoadedTask.subscribe(topic);
+        this.topicsToConsumer.put(topic, leastLoadedTask);
     }
 
     @Override
@@ -112,88 +369,441 @@ public class HagridDownstreamHandler implements DownstreamHandler {
     }
 
     @Override
-    public void removeFromSubscriber(final HagridTopic<?> topic) {
-        final ConsumerTask task = this.topicsToConsumer.get(topic);
+    public synchronized void removeFromSubscriber(final HagridTopic<?> topic) {
+        final ConsumerTask task = this.topicsToConsumer.remove(topic);
+        this.topicLoads.remove(topic);
         if (task == null) return;
 
-        final HagridSubscriber subscriber = task.getSubscriber();
-        subscriber.unsubscribe(topic);
-
-        if (subscriber.getTopics().isEmpty()) {
+        task.unsubscribe(topic);
+        if (task.topics.isEmpty()) {
             task.stop();
         }
     }
 
-    private static class ConsumerTask extends StoppableTask {
+    /**
+     * Adapts the subscribers to the measured load of their topics.
+     * <ul>
+     *     <li>Subscribers that are almost idle are merged, as long as there are more than
+     *     {@link HagridConfig#MIN_SUBSCRIBER}, so that idle topics do not need a consumer each.
+     *     <li>Otherwise a topic is moved from the subscriber with the highest load to the one with
+     *     the lowest load or to a new one, if one subscriber receives considerably more than the others.
+     *     Only one topic is moved at once, as every move causes the consumer group to rebalance.
+     * </ul>
+     * This is called periodically, see {@link HagridConfig#REBALANCE_INTERVAL_IN_SECONDS}.
+     */
+    public synchronized void rebalance() {
+        final long now = System.nanoTime();
+        final long elapsed = now - this.lastRebalance;
+        this.lastRebalance = now;
+        for (final TopicLoad load : this.topicLoads.values()) {
+            load.tick(elapsed);
+        }
+
+        final List<ConsumerTask> tasks = this.getRunningTasks();
+        if (tasks.isEmpty()) return;
+        final Map<ConsumerTask, Double> loads = new HashMap<>();
+        for (final ConsumerTask task : tasks) {
+            loads.put(task, this.getLoad(task));
+        }
+        tasks.sort(Comparator.comparingDouble(loads::get));
+
+        if (this.merge(tasks, loads)) return;
+
+        final ConsumerTask hottest = tasks.get(tasks.size() - 1);
+        final double hottestLoad = loads.get(hottest);
+        ConsumerTask coldest = tasks.get(0);
+        double coldestLoad = loads.get(coldest);
+
+        if (hottest.topics.size() < 2 || hottestLoad < MIN_REBALANCE_LOAD) return;
+        if (hottest == coldest) {
+            // the only subscriber is busy, so we take another one if we may
+            if (tasks.size() >= this.maxSubscriber) return;
+            coldest = null;
+            coldestLoad = 0;
+        } else if (hottestLoad < coldestLoad * MIN_REBALANCE_IMBALANCE) {
+            return;
+        }
+
+        // the topic that evens out the load the most, without just making the other one the bottleneck
+        final double difference = hottestLoad - coldestLoad;
+        HagridTopic<?> candidate = null;
+        double candidateLoad = 0;
+        for (final HagridTopic<?> topic : hottest.topics) {
+            final double load = this.getLoad(topic);
+            if (load <= 0 || load >= difference) continue;
+
+            if (candidate == null || Math.abs(difference - 2 * load) < Math.abs(difference - 2 * candidateLoad)) {
+                candidate = topic;
+                candidateLoad = load;
+            }
+        }
+        if (candidate == null) return;
+
+        this.service.getLogger().info("Moving topic {} to another subscriber to balance the load ({} vs {} per second)",
+            candidate.getPattern(), Math.round(hottestLoad), Math.round(coldestLoad));
+        this.migrate(candidate, hottest, coldest == null ? this.startTask(null) : coldest);
+    }
+
+    /**
+     * Moves all topics of the least busy subscribers onto other ones, as long as the merged load
+     * stays below {@link #MIN_REBALANCE_LOAD}, and stops them afterwards.
+     *
+     * @param tasks The running tasks sorted by their load
+     * @param loads The load of every task
+     *
+     * @return If any subscriber got merged.
+     */
+    private boolean merge(final List<ConsumerTask> tasks, final Map<ConsumerTask, Double> loads) {
+        int remaining = tasks.size();
+        boolean merged = false;
+
+        ConsumerTask target = tasks.get(0);
+        double targetLoad = loads.get(target);
+        for (int i = 1; i < tasks.size() && remaining > this.minSubscriber; i++) {
+            final ConsumerTask task = tasks.get(i);
+            final double load = loads.get(task);
+            if (targetLoad + load >= MIN_REBALANCE_LOAD) break;
+
+            this.service.getLogger().debug("Merging {} idle topics into another subscriber", task.topics.size());
+            for (final HagridTopic<?> topic : new ArrayList<>(task.topics)) {
+                this.migrate(topic, task, target);
+            }
+            // after the topics got handed over, if no other topic got placed on it in the meantime
+            task.commands.add(() -> {
+                synchronized (HagridDownstreamHandler.this) {
+                    if (task.topics.isEmpty()) task.stop();
+                }
+            });
+
+            targetLoad += load;
+            remaining--;
+            merged = true;
+        }
+        return merged;
+    }
+
+    /**
+     * The new subscriber only subscribes after the old one unsubscribed on its
+     * polling thread, so that it continues at the offsets the old one committed.
+     * <p>
+     * This does not wait for the old subscriber to actually give up the partitions, nor
+     * for the listeners of the records it already polled. Just like on any other
+     * rebalance of the consumer group, records whose offsets were not committed yet
+     * are received again, so a migration only guarantees that no record gets lost.
+     */
+    private void migrate(final HagridTopic<?> topic, final ConsumerTask from, final ConsumerTask to) {
+        from.topics.remove(topic);
+        to.topics.add(topic);
+        this.topicsToConsumer.put(topic, to);
+
+        from.commands.add(() -> {
+            if (!from.topics.contains(topic)) from.subscriber.unsubscribe(topic);
+            to.commands.add(() -> {
+                if (to.topics.contains(topic)) to.subscriber.subscribe(topic);
+            });
+        });
+    }
+
+    private synchronized void scheduleRebalance() {
+        if (this.rebalanceIntervalInSeconds <= 0 || this.rebalanceTimeout != null) return;
+
+        this.rebalanceTimeout = this.timer.schedule(() -> {
+            synchronized (this) {
+                this.rebalanceTimeout = null;
+                try {
+                    this.rebalance();
+                } catch (final RuntimeException ex) {
+                    this.service.getLogger().warn("Error during rebalancing of the subscribers", ex);
+                }
+
+                if (!this.getRunningTasks().isEmpty()) this.scheduleRebalance();
+            }
+        }, this.rebalanceIntervalInSeconds, TimeUnit.SECONDS);
+    }
+
+    private List<ConsumerTask> getRunningTasks() {
+        final List<ConsumerTask> tasks = new ArrayList<>(this.consumerTasks.size());
+        for (final ConsumerTask task : this.consumerTasks) {
+            if (task.isRunning()) tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private double getLoad(final HagridTopic<?> topic) {
+        final TopicLoad load = this.topicLoads.get(topic);
+        return load == null ? 0 : load.get();
+    }
+
+    private double getLoad(final ConsumerTask task) {
+        double load = 0;
+        for (final HagridTopic<?> topic : task.topics) {
+            load += this.getLoad(topic);
+        }
+        return load;
+    }
+
+    /**
+     * @param topic The concrete topic of a record
+     *
+     * @return The load of the registered topic the record belongs to.
+     */
+    private TopicLoad resolveLoad(final String topic) {
+        HagridTopic<?> registeredTopic;
+        try {
+            registeredTopic = this.service.communication().getTopic(topic);
+        } catch (final RuntimeException ex) {
+            registeredTopic = null;
+        }
+        // records of unknown topics are counted, but nowhere taken into account
+        if (registeredTopic == null || !this.topicsToConsumer.containsKey(registeredTopic)) return new TopicLoad();
+
+        return this.topicLoads.computeIfAbsent(registeredTopic, t -> new TopicLoad());
+    }
+
+    /**
+     * @return The amount of received packets of all subscribers, that are
+     * still being decoded or whose listeners have not been executed yet.
+     */
+    private int getPendingPackets() {
+        int pending = 0;
+        for (final ConsumerTask task : this.consumerTasks) {
+            pending += task.pendingPackets.get();
+        }
+        return pending;
+    }
+
+    /**
+     * The received messages and bytes per second of a topic.
+     */
+    private static class TopicLoad {
+
+        private final EwmaRate messages = new EwmaRate(LOAD_ALPHA);
+        private final EwmaRate bytes = new EwmaRate(LOAD_ALPHA);
+
+        private void record(final int size) {
+            this.messages.record(1);
+            this.bytes.record(size);
+        }
+
+        private void tick(final long elapsedNanos) {
+            this.messages.tick(elapsedNanos);
+            this.bytes.tick(elapsedNanos);
+        }
+
+        /**
+         * @return The load, where every kilobyte counts as much as a message.
+         */
+        private double get() {
+            return this.messages.getRate() + this.bytes.getRate() / 1024;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface HandledCallback {
+
+        void handled(String topic, int partition, long offset);
+
+    }
+
+    private class ConsumerTask extends StoppableTask {
 
         private final HagridService service;
 
         private final HagridSubscriber subscriber;
 
+        /**
+         * The topics this task is supposed to subscribe to. The subscriber itself
+         * is only changed by the {@link #commands} on the polling thread.
+         */
+        private final Set<HagridTopic<?>> topics = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Changes of the subscriber, which are executed by the polling thread before the next
+         * poll, as subscribers must not be accessed by multiple threads at once.
+         */
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The loads by the concrete topic of the records, only accessed by the polling thread.
+         */
+        private final Map<String, TopicLoad> loads = new HashMap<>();
+
+        /**
+         * The amount of received packets, whose listeners have not been executed yet.
+         */
+        private final AtomicInteger pendingPackets = new AtomicInteger();
+
+        /**
+         * The same as {@link #pendingPackets}, but by the concrete topic of the packets,
+         * so that only the topics whose listeners can not keep up get paused.
+         */
+        private final Map<String, AtomicInteger> pendingPacketsByTopic = new ConcurrentHashMap<>();
+        private final HandledCallback onHandled = this::handled;
+        private final HagridSubscriber.RecordHandler recordHandler = this::handle;
+
+        /**
+         * The concrete topics the subscriber got paused for, only accessed by the polling thread.
+         */
+        private final Set<String> pausedTopics = new HashSet<>();
+
+        /**
+         * Completes as soon as the last decoded record got dispatched to its listeners.
+         * Every record waits for the previous one, so that the records are dispatched
+         * in the order they got polled, no matter which one got decoded first.
+         */
+        private CompletableFuture<Void> lastDispatch = CompletableFuture.completedFuture(null);
+
         public ConsumerTask(final HagridService service, final HagridSubscriber subscriber) {
             this.service = service;
             this.subscriber = subscriber;
         }
 
+        private void subscribe(final HagridTopic<?> topic) {
+            this.topics.add(topic);
+            this.commands.add(() -> {
+                if (this.topics.contains(topic)) this.subscriber.subscribe(topic);
+            });
+        }
+
+        private void unsubscribe(final HagridTopic<?> topic) {
+            this.topics.remove(topic);
+            this.commands.add(() -> {
+                if (!this.topics.contains(topic)) this.subscriber.unsubscribe(topic);
+            });
+        }
+
+        private void executeCommands() {
+            if (this.commands.isEmpty()) return;
+
+            Runnable command;
+            while ((command = this.commands.poll()) != null) {
+                try {
+                    command.run();
+                } catch (final RuntimeException ex) {
+                    this.service.getLogger().warn("Error during changing the subscriptions", ex);
+                }
+            }
+            // the topics might belong to different registered topics now
+            this.loads.clear();
+        }
+
         @Override
         public int execute() {
-            final List<HagridSubscriber.Record> records = this.subscriber.poll();
-
-            for (final HagridSubscriber.Record record : records) {
-                final String recordTopic = record.getTopic();
-                final HagridTopic<?> registeredTopic = this.service.communication().getTopic(recordTopic);
-                if (registeredTopic == null) {
-                    // we just silently do nothing ..
-                    return 0;
-                }
-                final TopicProperties topicProperties = registeredTopic.getProperties();
+            this.executeCommands();
+            this.applyBackpressure();
+            this.subscriber.poll(this.recordHandler);
+            return 0;
+        }
 
-                if (!topicProperties.receivesStalePackets()
-                    && record.getTimestamp() < this.service.connection().getLastSuccess()) {
-                    // packet is stale and we do not want stale packets
-                    return 0;
+        private void handle(final String topic, final int partition, final long offset,
+                            final String key, final Packet packet, final long timestamp) {
+            TopicLoad load = this.loads.get(topic);
+            if (load == null) {
+                load = HagridDownstreamHandler.this.resolveLoad(topic);
+                this.loads.put(topic, load);
+            }
+            load.record(packet.getSerializedSize());
+
+            final ExecutorService decodeThreadPool = HagridDownstreamHandler.this.decodeThreadPool;
+            if (decodeThreadPool == null) {
+                final HagridPacket<?> hagridPacket = HagridDownstreamHandler.this.decode(topic, packet, timestamp);
+                if (hagridPacket == null) {
+                    // only skip this record, not the rest of the poll
+                    this.subscriber.acknowledge(topic, partition, offset);
+                    return;
                 }
 
-                final Packet packet = record.getPacket();
-                if (!topicProperties.receivesSentPackets()
-                    && this.service.upstream().isIdling(packet.getId())) {
-                    // we sent this packet but we do not want sent packets.
-                    return 0;
+                // if this throws an error, the record does not get successfuly consumed
+                this.incrementPending(topic);
+                try {
+                    HagridDownstreamHandler.this.receive(topic, partition, offset, key, hagridPacket, this.onHandled);
+                } catch (final RuntimeException ex) {
+                    this.handled(topic, partition, offset);
+                    throw ex;
                 }
+            } else {
+                this.incrementPending(topic);
+                final CompletableFuture<HagridPacket<?>> decoded = CompletableFuture.<HagridPacket<?>>supplyAsync(
+                    () -> HagridDownstreamHandler.this.decode(topic, packet, timestamp), decodeThreadPool)
+                    .exceptionally(ex -> {
+                        this.service.getLogger().warn("Error during decoding of a record", ex);
+                        return null;
+                    });
+
+                this.lastDispatch = this.lastDispatch.thenCombine(decoded, (ignored, hagridPacket) -> {
+                    this.dispatch(topic, partition, offset, key, hagridPacket);
+                    return null;
+                });
+            }
+        }
 
-                final Packet.Payload packetPayload = packet.getPayload();
-                final byte[] payloadData = packetPayload.getValue().toByteArray();
+        private void dispatch(final String topic, final int partition, final long offset,
+                              final String key, final HagridPacket<?> packet) {
+            if (packet == null) {
+                // only skip this record, not the rest of the poll
+                this.handled(topic, partition, offset);
+                return;
+            }
 
-                Object payload = null;
-                try {
-                    payload = payloadData.length == 0 ? null :
-                        registeredTopic.getSerdes().deserialize(
-                            packetPayload.getTypeUrl(),
-                            packetPayload.getValue().toByteArray()
-                        );
-                } catch (final Exception ex) {
-                    // if an error occurs during the serdes
-                    this.service.getLogger().warn("Error during deserialization", ex);
-                    return 0;
-                }
-                final Status status = new Status(packet.getStatus().getCode(),
-                    packet.getStatus().getSubcode(), packet.getStatus().getMessage());
+            try {
+                HagridDownstreamHandler.this.receive(topic, partition, offset, key, packet, this.onHandled);
+            } catch (final RuntimeException ex) {
+                // must not complete the chain exceptionally, as that would skip all following records
+                this.handled(topic, partition, offset);
+                this.service.getLogger().warn("Error during dispatching of a packet", ex);
+            }
+        }
 
-                // if this throws an error, the record does not get successfuly consumed
-                this.service.downstream().receive(recordTopic, new HagridPacket<>(
-                    recordTopic,
-                    packet.getId(),
-                    packet.getRequestId(),
-                    status,
-                    payload)
-                );
+        /**
+         * Called as soon as the listeners of a received packet have been executed,
+         * or if it could not be passed on to them at all, as it will not be retried.
+         */
+        private void handled(final String topic, final int partition, final long offset) {
+            this.pendingPackets.decrementAndGet();
+            this.pendingPacketsByTopic.get(topic).decrementAndGet();
+            this.subscriber.acknowledge(topic, partition, offset);
+        }
+
+        private void incrementPending(final String topic) {
+            this.pendingPackets.incrementAndGet();
+
+            AtomicInteger pending = this.pendingPacketsByTopic.get(topic);
+            if (pending == null) {
+                pending = this.pendingPacketsByTopic.computeIfAbsent(topic, name -> new AtomicInteger());
+            }
+            pending.incrementAndGet();
+        }
+
+        /**
+         * Pauses fetching the topics whose listeners can not keep up with the received
+         * packets, so that they do not pile up in memory, and resumes them as soon as
+         * they caught up. The other topics of the subscriber are not affected.
+         */
+        private void applyBackpressure() {
+            if (HagridDownstreamHandler.this.highWatermark <= 0) return;
+
+            for (final Map.Entry<String, AtomicInteger> entry : this.pendingPacketsByTopic.entrySet()) {
+                final String topic = entry.getKey();
+                final int pending = entry.getValue().get();
+
+                if (pending >= HagridDownstreamHandler.this.highWatermark) {
+                    if (!this.pausedTopics.add(topic)) continue;
+                    this.service.getLogger().debug("Pausing topic {} with {} pending packets", topic, pending);
+                    this.subscriber.pause(topic);
+                } else if (pending <= HagridDownstreamHandler.this.lowWatermark && this.pausedTopics.remove(topic)) {
+                    this.service.getLogger().debug("Resuming topic {} with {} pending packets", topic, pending);
+                    this.subscriber.resume(topic);
+                }
             }
-            return 0;
         }
 
         @Override
         public void onStop() {
+            // a topic that is moved to another task waits for us to unsubscribe
+            this.executeCommands();
             this.subscriber.close();
+            HagridDownstreamHandler.this.consumerTasks.remove(this);
         }
 
         public HagridSubscriber getSubscriber() {
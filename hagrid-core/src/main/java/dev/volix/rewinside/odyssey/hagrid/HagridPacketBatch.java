@@ -0,0 +1,59 @@
+package dev.volix.rewinside.odyssey.hagrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Tobias Büser
+ */
+public class HagridPacketBatch implements PacketBatch {
+
+    private final HagridService service;
+
+    private final String topic;
+    private final String key;
+    private final Status status;
+
+    private final List<HagridPacket<?>> packets = new ArrayList<>();
+
+    public HagridPacketBatch(final HagridService service, final String topic, final String key, final Status status) {
+        this.service = service;
+        this.topic = topic;
+        this.key = key;
+        this.status = status;
+    }
+
+    @Override
+    public PacketBatch add(final Object payload) {
+        return this.add(this.topic, payload);
+    }
+
+    @Override
+    public PacketBatch add(final String topic, final Object payload) {
+        if (topic == null) throw new IllegalArgumentException("topic has to be set first");
+
+        return this.add(new HagridPacket<>(topic, this.service.idGenerator().nextString(), "", this.status, payload));
+    }
+
+    @Override
+    public PacketBatch add(final HagridPacket<?> packet) {
+        if (packet.getTopic() == null) throw new IllegalArgumentException("packet has no topic");
+
+        this.packets.add(packet);
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return this.packets.size();
+    }
+
+    @Override
+    public CompletableFuture<Void> send() {
+        // the listeners of the sent packets iterate them later on another thread,
+        // while this batch could already be changed or sent again
+        return this.service.upstream().sendAll(this.key, new ArrayList<>(this.packets));
+    }
+
+}
@@ -1,10 +1,6 @@
 package dev.volix.rewinside.odyssey.hagrid;
 
-import dev.volix.rewinside.odyssey.hagrid.listener.Direction;
-import dev.volix.rewinside.odyssey.hagrid.listener.HagridListener;
-import dev.volix.rewinside.odyssey.hagrid.listener.HagridListenerMethod;
 import dev.volix.rewinside.odyssey.hagrid.protocol.StatusCode;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -14,7 +10,7 @@ public class HagridPacketWizard implements PacketWizard {
 
     private final HagridService service;
 
-    private final String id = UUID.randomUUID().toString();
+    private final String id;
     private String topic;
     private String key = "";
     private String requestId = "";
@@ -25,6 +21,7 @@ public class HagridPacketWizard implements PacketWizard {
 
     public HagridPacketWizard(final HagridService service) {
         this.service = service;
+        this.id = service.idGenerator().nextString();
 
         this.timeoutInSeconds = service.getConfiguration().getInt(HagridConfig.LISTENER_DEFAULT_TIMEOUT_IN_SECONDS);
     }
@@ -66,30 +63,36 @@ public class HagridPacketWizard implements PacketWizard {
     }
 
     @Override
-    public void send() {
+    public PacketBatch batch() {
+        return new HagridPacketBatch(this.service, this.topic, this.key, this.status);
+    }
+
+    @Override
+    public CompletableFuture<Void> send() {
         final HagridPacket<?> packet = new HagridPacket<>(this.topic, this.id, this.requestId, this.status, this.payload);
 
-        this.service.upstream().send(this.topic, this.key, packet);
+        return this.service.upstream().send(this.topic, this.key, packet);
     }
 
     @Override
     public <T> CompletableFuture<HagridPacket<T>> sendAndWait(final Class<T> payloadClass) {
-        final CompletableFuture<HagridPacket<T>> future = new CompletableFuture<>();
-        final HagridListener listener = HagridListener.builder(
-            new HagridListenerMethod<T>() {
-                @Override
-                public void listen(final T payload, final HagridPacket<T> req, final HagridResponse response) {
-                    future.complete(req);
-                }
-            }).topic(this.topic)
-            .direction(Direction.DOWNSTREAM)
-            .payloadClass(payloadClass)
-            .listensTo(this.id)
-            .timeout(this.timeoutInSeconds)
-            .build();
-        this.service.communication().registerListener(listener);
-
-        this.send();
+        final CompletableFuture<HagridPacket<T>> future = this.service.communication()
+            .registerRequest(this.topic, this.id, payloadClass, this.timeoutInSeconds);
+
+        final CompletableFuture<Void> sendFuture;
+        try {
+            sendFuture = this.send();
+        } catch (final RuntimeException ex) {
+            this.service.communication().unregisterRequest(this.id);
+            throw ex;
+        }
+
+        // no response can come for a packet that never got sent
+        sendFuture.whenComplete((ignored, error) -> {
+            if (error == null) return;
+            this.service.communication().unregisterRequest(this.id);
+            future.completeExceptionally(error);
+        });
         return future;
     }
 
@@ -8,12 +8,17 @@ import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
 import dev.volix.rewinside.odyssey.hagrid.protocol.Status;
 import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
 import dev.volix.rewinside.odyssey.hagrid.util.DaemonThreadFactory;
+import dev.volix.rewinside.odyssey.hagrid.util.ExpiringIdSet;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -22,26 +27,41 @@ import java.util.concurrent.TimeUnit;
 public class HagridUpstreamHandler implements UpstreamHandler {
 
     private final HagridService service;
-    private HagridPublisher publisher;
+    private final HagridPublisher publisher;
+    private volatile boolean connected = false;
 
-    private final Map<String, HagridPacket<?>> idlePackets = new HashMap<>();
-    private final Map<String, Long> idlePacketsTimestamps = new HashMap<>();
+    /**
+     * Handles the acknowledgements of the publisher: records the metrics, executes the
+     * {@link Direction#UPSTREAM} listeners and then completes the futures returned to the caller.
+     * The publisher usually completes its futures on its own I/O thread (e.g. the network thread
+     * of the Kafka producer), where every listener or blocking stage of a caller would stall all publishing.
+     */
+    private final ThreadPoolExecutor callbackThreadPool;
+
+    /**
+     * The ids of the packets that got sent recently, so that we can detect
+     * them when they are received by ourselves. Only the ids are kept,
+     * so that the payloads can be garbage collected right after sending.
+     */
+    private final ExpiringIdSet idlePacketIds;
 
     public HagridUpstreamHandler(final HagridService service, final HagridPublisher publisher) {
         this.service = service;
         this.publisher = publisher;
+        this.idlePacketIds = new ExpiringIdSet(
+            service.getConfiguration().getInt(HagridConfig.IDLE_PACKET_RETENTION_DELAY_IN_SECONDS), TimeUnit.SECONDS);
 
-        final ScheduledExecutorService threadPool = Executors.newScheduledThreadPool(1, new DaemonThreadFactory());
-
-        final int cleanupDelayInSeconds = service.getConfiguration().getInt(HagridConfig.LISTENER_CLEANUP_DELAY_IN_SECONDS);
-        threadPool.scheduleAtFixedRate(new IdlingPacketCleanupTask(this.idlePackets, this.idlePacketsTimestamps),
-            cleanupDelayInSeconds, cleanupDelayInSeconds, TimeUnit.SECONDS);
+        final int callbackThreads = Math.max(service.getConfiguration().getInt(HagridConfig.UPSTREAM_CALLBACK_THREADS), 1);
+        this.callbackThreadPool = new ThreadPoolExecutor(callbackThreads, callbackThreads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new DaemonThreadFactory("Upstream-"));
+        this.callbackThreadPool.allowCoreThreadTimeOut(true);
     }
 
     @Override
     public void connect() throws HagridConnectionException {
         try {
             this.publisher.open();
+            this.connected = true;
         } catch (final Exception ex) {
             throw new HagridConnectionException(ex);
         }
@@ -49,15 +69,24 @@ public class HagridUpstreamHandler implements UpstreamHandler {
 
     @Override
     public void disconnect() {
-        if (this.publisher != null) {
+        if (this.connected) {
+            this.connected = false;
             this.publisher.close();
-            this.publisher = null;
         }
     }
 
+    /**
+     * Stops the threads of this handler after the queued listeners have been executed.
+     * The handler can not be used anymore afterwards.
+     */
+    public void shutdown() {
+        this.disconnect();
+        this.callbackThreadPool.shutdown();
+    }
+
     @Override
-    public <T> void send(final String topic, final String key, final HagridPacket<T> packet) throws HagridStreamException {
-        if (this.publisher == null) {
+    public <T> CompletableFuture<Void> send(final String topic, final String key, final HagridPacket<T> packet) throws HagridStreamException {
+        if (!this.connected) {
             throw new IllegalStateException("connect() has to be called before sending packets!");
         }
 
@@ -66,79 +95,178 @@ public class HagridUpstreamHandler implements UpstreamHandler {
             throw new IllegalArgumentException("Given topic has to be registered first!");
         }
 
-        final T payload = packet.getPayloadOrNull();
-        Packet.Payload packetPayload = null;
+        final Packet protoPacket;
+        final long serializationStart = System.nanoTime();
         try {
-            packetPayload = payload == null
-                ? Packet.Payload.newBuilder().setValue(ByteString.copyFrom(new byte[] {})).build()
-                : Packet.Payload.newBuilder()
-                .setTypeUrl(payload.getClass().getTypeName())
-                .setValue(ByteString.copyFrom(registeredTopic.getSerdes().serialize(payload)))
-                .build();
+            protoPacket = this.toProtoPacket(registeredTopic, packet);
         } catch (final Exception ex) {
             // exception during serdes
             this.service.getLogger().warn("Error during serialization", ex);
-            return;
+            this.service.metrics().packetSendFailed(topic);
+
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
         }
 
-        final Packet protoPacket = Packet.newBuilder()
-            .setPayload(packetPayload)
-            .setId(packet.getId() == null ? UUID.randomUUID().toString() : "")
-            .setRequestId(packet.getRequestId() == null ? "" : packet.getRequestId())
-            .setStatus(Status.newBuilder()
-                .setCode(packet.getStatus().getCode())
-                .setSubcode(packet.getStatus().getSubcode())
-                .setMessage(packet.getStatus().getMessage() == null ? "" : packet.getStatus().getMessage())
-                .build())
-            .build();
+        final long serializationNanos = System.nanoTime() - serializationStart;
 
-        try {
-            this.publisher.push(topic, key, protoPacket);
+        // the packet could be received again before the push got acknowledged
+        this.idlePacketIds.add(protoPacket.getId());
 
-            this.service.getLogger().trace("Sent packet: {}", packet.toString().replaceAll("\n", ""));
-            this.idlePackets.put(packet.getId(), packet);
-            this.idlePacketsTimestamps.put(packet.getId(), System.currentTimeMillis());
+        final CompletableFuture<Void> future;
+        try {
+            future = this.publisher.push(topic, key, protoPacket);
         } catch (final Exception ex) {
             this.service.connection().handleError(ex);
             throw new HagridStreamException(ex);
         }
 
-        // notify listeners
-        this.service.communication().executeListeners(topic, Direction.UPSTREAM, packet);
+        // the returned future completes after the listeners have been executed
+        return future.whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                this.service.metrics().packetSendFailed(topic);
+                this.handlePushError(error);
+                return;
+            }
+            this.service.metrics().packetSent(topic, serializationNanos);
+            this.logSent(packet);
+
+            // notify listeners
+            this.executeListeners(topic, packet);
+        }, this::executeCallback);
     }
 
     @Override
-    public boolean isIdling(final String packetId) {
-        return this.idlePackets.containsKey(packetId);
-    }
+    public CompletableFuture<Void> sendAll(final String key, final Collection<? extends HagridPacket<?>> packets) throws HagridStreamException {
+        if (!this.connected) {
+            throw new IllegalStateException("connect() has to be called before sending packets!");
+        }
+        if (packets.isEmpty()) return CompletableFuture.completedFuture(null);
 
-    private class IdlingPacketCleanupTask implements Runnable {
+        // most batches only go to a few topics, so we only look them up once
+        final Map<String, HagridTopic<?>> registeredTopics = new HashMap<>();
+        final List<HagridPublisher.Record> records = new ArrayList<>(packets.size());
+        final long[] serializationNanos = new long[packets.size()];
 
-        private final Map<String, HagridPacket<?>> idlePackets;
-        private final Map<String, Long> idlePacketsTimestamps;
+        for (final HagridPacket<?> packet : packets) {
+            final String topic = packet.getTopic();
+            if (topic == null) {
+                throw new IllegalArgumentException("every packet of a batch needs a topic");
+            }
 
-        public IdlingPacketCleanupTask(final Map<String, HagridPacket<?>> idlePackets, final Map<String, Long> idlePacketsTimestamps) {
-            this.idlePackets = idlePackets;
-            this.idlePacketsTimestamps = idlePacketsTimestamps;
+            HagridTopic<?> registeredTopic = registeredTopics.get(topic);
+            if (registeredTopic == null) {
+                registeredTopic = this.service.communication().getTopic(topic);
+                if (registeredTopic == null) {
+                    throw new IllegalArgumentException("Given topic has to be registered first!");
+                }
+                registeredTopics.put(topic, registeredTopic);
+            }
+
+            final long serializationStart = System.nanoTime();
+            try {
+                records.add(new HagridPublisher.Record(topic, key, this.toProtoPacket((HagridTopic) registeredTopic, packet)));
+            } catch (final Exception ex) {
+                // exception during serdes, we do not send a batch partially
+                this.service.getLogger().warn("Error during serialization", ex);
+                this.service.metrics().packetSendFailed(topic);
+
+                final CompletableFuture<Void> future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+                return future;
+            }
+            serializationNanos[records.size() - 1] = System.nanoTime() - serializationStart;
         }
 
-        @Override
-        public void run() {
-            final long current = System.currentTimeMillis();
-            final long cleanupDelay = HagridUpstreamHandler.this.service.getConfiguration().getInt(HagridConfig.LISTENER_CLEANUP_DELAY_IN_SECONDS);
+        for (final HagridPublisher.Record record : records) {
+            this.idlePacketIds.add(record.getPacket().getId());
+        }
 
-            for (final String packetKey : new ArrayList<>(this.idlePacketsTimestamps.keySet())) {
-                final long sentAt = this.idlePacketsTimestamps.get(packetKey);
-                if (sentAt <= 0) continue;
+        final CompletableFuture<Void> future;
+        try {
+            future = this.publisher.pushAll(records);
+        } catch (final Exception ex) {
+            this.service.connection().handleError(ex);
+            throw new HagridStreamException(ex);
+        }
 
-                final long retentionAt = sentAt + (cleanupDelay * 1000);
-                if (current >= retentionAt) {
-                    this.idlePacketsTimestamps.remove(packetKey);
-                    this.idlePackets.remove(packetKey);
+        return future.whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                for (final HagridPublisher.Record record : records) {
+                    this.service.metrics().packetSendFailed(record.getTopic());
                 }
+                this.handlePushError(error);
+                return;
+            }
+            for (int i = 0; i < records.size(); i++) {
+                this.service.metrics().packetSent(records.get(i).getTopic(), serializationNanos[i]);
             }
+
+            // notify listeners of the whole batch at once
+            for (final HagridPacket<?> packet : packets) {
+                this.logSent(packet);
+                this.executeListeners(packet.getTopic(), packet);
+            }
+        }, this::executeCallback);
+    }
+
+    private void executeCallback(final Runnable callback) {
+        try {
+            this.callbackThreadPool.execute(callback);
+        } catch (final RejectedExecutionException ex) {
+            // after the shutdown the pushes that are still in flight are handled right away,
+            // as their futures would never complete otherwise
+            callback.run();
+        }
+    }
+
+    private <T> Packet toProtoPacket(final HagridTopic<T> registeredTopic, final HagridPacket<T> packet) {
+        final T payload = packet.getPayloadOrNull();
+        final Packet.Payload packetPayload = payload == null
+            ? Packet.Payload.newBuilder().setValue(ByteString.EMPTY).build()
+            : Packet.Payload.newBuilder()
+            .setTypeUrl(payload.getClass().getTypeName())
+            .setValue(registeredTopic.getSerdes().serializeToByteString(payload))
+            .build();
+
+        final String packetId = packet.getId() == null ? this.service.idGenerator().nextString() : packet.getId();
+        return Packet.newBuilder()
+            .setPayload(packetPayload)
+            .setId(packetId)
+            .setRequestId(packet.getRequestId() == null ? "" : packet.getRequestId())
+            .setStatus(Status.newBuilder()
+                .setCode(packet.getStatus().getCode())
+                .setSubcode(packet.getStatus().getSubcode())
+                .setMessage(packet.getStatus().getMessage() == null ? "" : packet.getStatus().getMessage())
+                .build())
+            .build();
+    }
+
+    private void handlePushError(final Throwable error) {
+        // wrap it just like a blocking get() on the future would,
+        // so that the connection handler can handle it as such.
+        this.service.connection().handleError(new ExecutionException(error));
+    }
+
+    private void logSent(final HagridPacket<?> packet) {
+        // building the string is way more expensive than sending the packet
+        if (this.service.getLogger().isTraceEnabled()) {
+            this.service.getLogger().trace("Sent packet: {}", packet.toString().replaceAll("\n", ""));
         }
+    }
+
+    private void executeListeners(final String topic, final HagridPacket<?> packet) {
+        try {
+            this.service.communication().executeListeners(topic, Direction.UPSTREAM, packet);
+        } catch (final Exception ex) {
+            this.service.getLogger().warn("error during listener execution", ex);
+        }
+    }
 
+    @Override
+    public boolean isIdling(final String packetId) {
+        return this.idlePacketIds.contains(packetId);
     }
 
 }
@@ -0,0 +1,55 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+/**
+ * Timeout for polling records, that adapts to how busy the subscriber is.
+ * <p>
+ * As long as polls return records, the minimum timeout is used, so that the subscriber
+ * reacts fast to e.g. backpressure. Every poll that returns nothing doubles the
+ * timeout up to the maximum, so that idle subscribers do not wake up all the time.
+ * As a poll returns as soon as records arrive, this does not delay any record.
+ * <p>
+ * Not thread-safe, as it is meant to be used by the polling thread only.
+ *
+ * @author Tobias Büser
+ */
+public class AdaptivePollTimeout {
+
+    private final long minMillis;
+    private final long maxMillis;
+
+    private long currentMillis;
+
+    public AdaptivePollTimeout(final long minMillis, final long maxMillis) {
+        if (minMillis <= 0) throw new IllegalArgumentException("minimum timeout must be positive");
+        this.minMillis = minMillis;
+        this.maxMillis = Math.max(minMillis, maxMillis);
+        this.currentMillis = minMillis;
+    }
+
+    /**
+     * @return The timeout in milliseconds to use for the next poll.
+     */
+    public long get() {
+        return this.currentMillis;
+    }
+
+    /**
+     * @param records The amount of records the last poll returned
+     */
+    public void update(final int records) {
+        if (records > 0) {
+            this.reset();
+        } else {
+            this.currentMillis = Math.min(this.currentMillis * 2, this.maxMillis);
+        }
+    }
+
+    /**
+     * Goes back to the minimum timeout, e.g. while the subscriber is paused
+     * and would not receive anything anyway.
+     */
+    public void reset() {
+        this.currentMillis = this.minMillis;
+    }
+
+}
@@ -0,0 +1,63 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An exponentially weighted moving average of a rate per second.
+ * <p>
+ * Values can be recorded by many threads without contention, while the rate
+ * is only updated on every {@link #tick(long)}, so that recording stays cheap.
+ *
+ * @author Tobias Büser
+ */
+public class EwmaRate {
+
+    private final LongAdder uncounted = new LongAdder();
+
+    /**
+     * How much the newest interval weighs, between {@code 0} and {@code 1}.
+     */
+    private final double alpha;
+
+    private volatile boolean initialized = false;
+    private volatile double rate = 0;
+
+    /**
+     * @param alpha How much the newest interval weighs into the average, between {@code 0} and {@code 1}
+     */
+    public EwmaRate(final double alpha) {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        this.alpha = alpha;
+    }
+
+    public void record(final long value) {
+        this.uncounted.add(value);
+    }
+
+    /**
+     * Updates the rate with everything recorded since the last tick.
+     * Must not be called concurrently.
+     *
+     * @param elapsedNanos The time since the last tick
+     */
+    public void tick(final long elapsedNanos) {
+        if (elapsedNanos <= 0) return;
+        final double intervalRate = this.uncounted.sumThenReset() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+
+        if (this.initialized) {
+            this.rate += this.alpha * (intervalRate - this.rate);
+        } else {
+            this.rate = intervalRate;
+            this.initialized = true;
+        }
+    }
+
+    /**
+     * @return The average per second as of the last tick.
+     */
+    public double getRate() {
+        return this.rate;
+    }
+
+}
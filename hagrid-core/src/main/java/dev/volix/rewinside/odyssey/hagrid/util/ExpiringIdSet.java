@@ -0,0 +1,123 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent set of ids that forgets every id after a fixed retention.
+ * <p>
+ * The ids are put into time buckets, where every bucket covers a fixed slice
+ * of the retention. As soon as a bucket is older than the retention, it gets
+ * replaced as a whole by the next id that is added to its slot. That way no id
+ * has to be removed on its own and no background thread is needed, while the
+ * memory is bounded by the ids that got added during the retention.
+ * <p>
+ * An id is kept for at least the retention and at most one bucket longer.
+ *
+ * @author Tobias Büser
+ */
+public class ExpiringIdSet {
+
+    private final long startNanos = System.nanoTime();
+    private final long bucketDurationNanos;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * @param retention   The minimum time an id is kept
+     * @param unit        The unit of the retention
+     * @param bucketCount The amount of slices the retention is split into.
+     *                    More buckets make the retention more exact, but {@link #contains(String)}
+     *                    has to check every bucket.
+     */
+    public ExpiringIdSet(final long retention, final TimeUnit unit, final int bucketCount) {
+        if (retention <= 0) throw new IllegalArgumentException("retention must be greater than 0");
+        if (bucketCount <= 0) throw new IllegalArgumentException("bucket count must be greater than 0");
+
+        this.bucketDurationNanos = Math.max(unit.toNanos(retention) / bucketCount, 1);
+        // one additional bucket, so that the oldest bucket is only replaced after the full retention
+        this.buckets = new AtomicReferenceArray<>(bucketCount + 1);
+    }
+
+    public ExpiringIdSet(final long retention, final TimeUnit unit) {
+        this(retention, unit, 8);
+    }
+
+    /**
+     * Adds the id, so that it is contained for at least the retention.
+     *
+     * @param id The id
+     */
+    public void add(final String id) {
+        final long epoch = this.currentEpoch();
+        final int index = (int) (epoch % this.buckets.length());
+
+        Bucket bucket = this.buckets.get(index);
+        while (bucket == null || bucket.epoch < epoch) {
+            // the slot is either empty or its ids expired, so we start a new bucket in it
+            final Bucket newBucket = new Bucket(epoch);
+            if (this.buckets.compareAndSet(index, bucket, newBucket)) {
+                bucket = newBucket;
+                break;
+            }
+            bucket = this.buckets.get(index);
+        }
+        bucket.ids.add(id);
+    }
+
+    /**
+     * @param id The id
+     *
+     * @return If the id got added and its retention did not pass yet.
+     */
+    public boolean contains(final String id) {
+        final long oldestEpoch = this.currentEpoch() - this.buckets.length() + 1;
+
+        for (int i = 0; i < this.buckets.length(); i++) {
+            final Bucket bucket = this.buckets.get(i);
+            if (bucket != null && bucket.epoch >= oldestEpoch && bucket.ids.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The amount of ids in memory, including the ones that expired but did not get replaced yet.
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < this.buckets.length(); i++) {
+            final Bucket bucket = this.buckets.get(i);
+            if (bucket != null) size += bucket.ids.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes all ids.
+     */
+    public void clear() {
+        for (int i = 0; i < this.buckets.length(); i++) {
+            this.buckets.set(i, null);
+        }
+    }
+
+    private long currentEpoch() {
+        // relative to the start, as nanoTime itself can be negative
+        return (System.nanoTime() - this.startNanos) / this.bucketDurationNanos;
+    }
+
+    private static class Bucket {
+
+        private final long epoch;
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        private Bucket(final long epoch) {
+            this.epoch = epoch;
+        }
+
+    }
+
+}
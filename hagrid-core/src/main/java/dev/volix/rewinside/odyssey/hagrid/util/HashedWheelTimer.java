@@ -0,0 +1,338 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A timer to schedule a lot of short tasks with a delay, e.g. for timeouts.
+ * <p>
+ * Instead of keeping all tasks sorted by their deadline, the tasks are put into
+ * the buckets of a wheel that ticks forward in a fixed {@code tickDuration}. Every tick
+ * only the tasks of a single bucket get checked, so that scheduling and cancelling
+ * a task is done in O(1), at the cost of a precision of one tick.
+ * <p>
+ * All tasks are executed on the single worker thread of the timer,
+ * so they should not block. Otherwise hand them to another executor.
+ *
+ * @author Tobias Büser
+ */
+public class HashedWheelTimer {
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    /**
+     * The maximum amount of new timeouts to put into the wheel per tick,
+     * so that the worker does not starve when scheduling faster than it can transfer.
+     */
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static volatile HashedWheelTimer defaultTimer;
+
+    private final long tickDurationNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+    private final Thread workerThread;
+
+    private volatile long startTime;
+    private long tick;
+
+    public HashedWheelTimer(final Duration tickDuration, final int ticksPerWheel, final ThreadFactory threadFactory) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("tick duration must be greater than 0");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticks per wheel must be between 1 and 2^30");
+        }
+        this.tickDurationNanos = tickDuration.toNanos();
+
+        // round up to the next power of two so that we can use a mask instead of a modulo
+        int wheelSize = 1;
+        while (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+
+        this.workerThread = threadFactory.newThread(new Worker());
+    }
+
+    public HashedWheelTimer(final Duration tickDuration) {
+        this(tickDuration, 512, new DaemonThreadFactory("Timer-"));
+    }
+
+    public HashedWheelTimer() {
+        this(Duration.ofMillis(10));
+    }
+
+    /**
+     * @return A lazily created timer that can be shared by every component
+     * which has not been given its own timer.
+     */
+    public static HashedWheelTimer getDefault() {
+        HashedWheelTimer timer = defaultTimer;
+        if (timer == null) {
+            synchronized (HashedWheelTimer.class) {
+                timer = defaultTimer;
+                if (timer == null) {
+                    timer = new HashedWheelTimer();
+                    defaultTimer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Schedules the task to be executed once after given delay.
+     * The worker thread gets started with the first scheduled task.
+     *
+     * @param task  The task to execute
+     * @param delay The delay
+     * @param unit  The unit of the delay
+     *
+     * @return A handle to cancel the task.
+     *
+     * @throws IllegalStateException if the timer has already been stopped
+     */
+    public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        this.start();
+
+        final long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - this.startTime;
+        final Timeout timeout = new Timeout(this, task, deadline);
+        this.pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    public Timeout schedule(final Runnable task, final Duration delay) {
+        return this.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the worker thread. Tasks that did not expire yet will not be executed.
+     */
+    public void stop() {
+        if (this.state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            this.workerThread.interrupt();
+        }
+    }
+
+    private void start() {
+        switch (this.state.get()) {
+            case STATE_INIT:
+                if (this.state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                    // 0 is used as "not started yet"
+                    final long now = System.nanoTime();
+                    this.startTime = now == 0 ? 1 : now;
+                    this.workerThread.start();
+                }
+                break;
+            case STATE_STARTED:
+                break;
+            default:
+                throw new IllegalStateException("timer has already been stopped");
+        }
+
+        // wait until the start time got initialized by whoever started the worker
+        while (this.startTime == 0) {
+            Thread.yield();
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (HashedWheelTimer.this.state.get() == STATE_STARTED) {
+                if (!this.waitForNextTick()) continue;
+
+                this.processCancelledTimeouts();
+                this.transferPendingTimeouts();
+
+                final Bucket bucket = HashedWheelTimer.this.wheel[(int) (HashedWheelTimer.this.tick & HashedWheelTimer.this.mask)];
+                bucket.expireTimeouts();
+                HashedWheelTimer.this.tick++;
+            }
+        }
+
+        /**
+         * @return If the next tick has been reached, {@code false} if the timer got stopped.
+         */
+        private boolean waitForNextTick() {
+            final long deadline = HashedWheelTimer.this.tickDurationNanos * (HashedWheelTimer.this.tick + 1);
+
+            while (true) {
+                final long sleepNanos = deadline - (System.nanoTime() - HashedWheelTimer.this.startTime);
+                if (sleepNanos <= 0) return true;
+
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (final InterruptedException e) {
+                    if (HashedWheelTimer.this.state.get() == STATE_STOPPED) return false;
+                }
+            }
+        }
+
+        private void transferPendingTimeouts() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                final Timeout timeout = HashedWheelTimer.this.pendingTimeouts.poll();
+                if (timeout == null) break;
+                if (timeout.state != Timeout.STATE_INIT) continue;
+
+                final long ticks = timeout.deadline / HashedWheelTimer.this.tickDurationNanos;
+                timeout.remainingRounds = (ticks - HashedWheelTimer.this.tick) / HashedWheelTimer.this.wheel.length;
+
+                // if the deadline is already in the past, it is put into the current bucket
+                final long targetTick = Math.max(ticks, HashedWheelTimer.this.tick);
+                HashedWheelTimer.this.wheel[(int) (targetTick & HashedWheelTimer.this.mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            while (true) {
+                final Timeout timeout = HashedWheelTimer.this.cancelledTimeouts.poll();
+                if (timeout == null) break;
+                if (timeout.bucket != null) timeout.bucket.remove(timeout);
+            }
+        }
+
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static class Timeout {
+
+        private static final int STATE_INIT = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = STATE_INIT;
+
+        // only accessed by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(final HashedWheelTimer timer, final Runnable task, final long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task, if it has not been expired yet.
+         *
+         * @return If the task got cancelled by this call.
+         */
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_CANCELLED)) return false;
+
+            // the worker removes it from its bucket, so that we do not need any locking
+            this.timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return this.state == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return this.state == STATE_EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) return;
+
+            try {
+                this.task.run();
+            } catch (final Throwable ex) {
+                // a failing task must not kill the worker
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), ex);
+            }
+        }
+
+    }
+
+    /**
+     * A doubly linked list of timeouts, only accessed by the worker thread.
+     */
+    private static class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if (this.head == null) {
+                this.head = this.tail = timeout;
+            } else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        private Timeout remove(final Timeout timeout) {
+            final Timeout next = timeout.next;
+            if (timeout.prev != null) timeout.prev.next = next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+
+            if (timeout == this.head) {
+                if (timeout == this.tail) {
+                    this.head = this.tail = null;
+                } else {
+                    this.head = next;
+                }
+            } else if (timeout == this.tail) {
+                this.tail = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        private void expireTimeouts() {
+            Timeout timeout = this.head;
+
+            while (timeout != null) {
+                if (timeout.remainingRounds <= 0) {
+                    final Timeout next = this.remove(timeout);
+                    timeout.expire();
+                    timeout = next;
+                } else if (timeout.isCancelled()) {
+                    timeout = this.remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                    timeout = timeout.next;
+                }
+            }
+        }
+
+    }
+
+}
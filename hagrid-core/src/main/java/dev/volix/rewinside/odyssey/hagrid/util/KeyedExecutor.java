@@ -0,0 +1,145 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor with a fixed amount of lanes, where every lane is
+ * a single thread with its own queue.
+ * <p>
+ * Tasks are routed to a lane by a key, so that all tasks with the same key
+ * are executed one after another in the order they got submitted,
+ * while tasks with different keys can be executed in parallel.
+ *
+ * @author Tobias Büser
+ */
+public class KeyedExecutor {
+
+    private final Lane[] lanes;
+
+    /**
+     * @param threads       The amount of lanes
+     * @param queueCapacity The capacity of the queue of every lane, or {@code 0} for an unbounded queue.
+     *                      If the queue of a lane is full, {@link #execute(Object, Runnable)} blocks.
+     * @param threadFactory The factory to create the thread of every lane with
+     */
+    public KeyedExecutor(final int threads, final int queueCapacity, final ThreadFactory threadFactory) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be greater than 0");
+        if (queueCapacity < 0) throw new IllegalArgumentException("queue capacity must not be negative");
+
+        this.lanes = new Lane[threads];
+        for (int i = 0; i < threads; i++) {
+            final BlockingQueue<Runnable> queue = queueCapacity == 0
+                ? new LinkedBlockingQueue<>()
+                : new ArrayBlockingQueue<>(queueCapacity);
+            this.lanes[i] = new Lane(queue);
+
+            final Thread thread = threadFactory.newThread(this.lanes[i]);
+            thread.start();
+        }
+    }
+
+    /**
+     * Executes the task on the lane of given key.
+     *
+     * @param key  The key to keep the order for, {@code null} is a valid key as well.
+     * @param task The task
+     *
+     * @throws IllegalStateException if the executor got shut down or the
+     *                               thread got interrupted while waiting for space in the queue.
+     */
+    public void execute(final Object key, final Runnable task) {
+        this.execute(key == null ? 0 : key.hashCode(), task);
+    }
+
+    /**
+     * Executes the task on the lane of given hash. This can be used
+     * to route by multiple values without creating a key object for them.
+     *
+     * @param hash The hash of the key
+     * @param task The task
+     *
+     * @see #execute(Object, Runnable)
+     */
+    public void execute(final int hash, final Runnable task) {
+        final Lane lane = this.lanes[this.indexOf(hash)];
+        if (lane.shutdown) throw new IllegalStateException("executor has been shut down");
+
+        try {
+            lane.queue.put(task);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the queue", e);
+        }
+    }
+
+    /**
+     * @return The amount of tasks waiting in all lanes.
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (final Lane lane : this.lanes) {
+            size += lane.queue.size();
+        }
+        return size;
+    }
+
+    public int getThreads() {
+        return this.lanes.length;
+    }
+
+    /**
+     * Stops all lanes after they executed the tasks that are already queued.
+     */
+    public void shutdown() {
+        for (final Lane lane : this.lanes) {
+            lane.shutdown = true;
+            // wake up the lane, if it waits for a task
+            lane.queue.offer(() -> { });
+        }
+    }
+
+    private int indexOf(final int hash) {
+        if (this.lanes.length == 1) return 0;
+
+        // spread the bits, as a lot of keys only differ in the higher bits
+        final int spread = hash ^ (hash >>> 16);
+        return (spread & Integer.MAX_VALUE) % this.lanes.length;
+    }
+
+    private static class Lane implements Runnable {
+
+        private final BlockingQueue<Runnable> queue;
+        private volatile boolean shutdown = false;
+
+        private Lane(final BlockingQueue<Runnable> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            while (!this.shutdown || !this.queue.isEmpty()) {
+                final Runnable task;
+                try {
+                    task = this.queue.poll(1, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (task == null) continue;
+
+                try {
+                    task.run();
+                } catch (final Throwable ex) {
+                    // a failing task must not stop the lane
+                    Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), ex);
+                }
+            }
+        }
+
+    }
+
+}
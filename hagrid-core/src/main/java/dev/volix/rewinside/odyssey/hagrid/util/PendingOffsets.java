@@ -0,0 +1,133 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+/**
+ * Keeps track of the records of one partition, which got polled but not handled yet.
+ * <p>
+ * Records are added in the order of their offsets, but can be acknowledged in any order,
+ * as the listeners of different keys run in parallel. The offset that can be committed
+ * is therefore the one of the first record that has not been acknowledged yet, so that
+ * no record is skipped if the consumer restarts from there.
+ * <p>
+ * The offsets are kept in a ring buffer, so that tracking a record does not allocate.
+ *
+ * @author Tobias Büser
+ */
+public class PendingOffsets {
+
+    private long[] offsets;
+    private boolean[] acknowledged;
+
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * The offset after the last added record, or {@code -1} if none got added yet.
+     */
+    private long nextOffset = -1;
+
+    public PendingOffsets(final int initialCapacity) {
+        this.offsets = new long[Math.max(initialCapacity, 1)];
+        this.acknowledged = new boolean[this.offsets.length];
+    }
+
+    public PendingOffsets() {
+        this(64);
+    }
+
+    /**
+     * @param offset The offset of the polled record. If it is not higher than the ones added before,
+     *               the position of the consumer got reset (e.g. by a seek or because the offsets
+     *               ran out of range), so everything that is still pending is forgotten.
+     */
+    public synchronized void add(final long offset) {
+        if (offset < this.nextOffset) this.reset();
+        if (this.size == this.offsets.length) this.grow();
+
+        final int index = (this.head + this.size) % this.offsets.length;
+        this.offsets[index] = offset;
+        this.acknowledged[index] = false;
+        this.size++;
+        this.nextOffset = offset + 1;
+    }
+
+    /**
+     * Marks the record as handled. Unknown offsets are ignored.
+     *
+     * @param offset The offset of the record
+     */
+    public synchronized void acknowledge(final long offset) {
+        final int position = this.find(offset);
+        if (position < 0) return;
+        this.acknowledged[(this.head + position) % this.offsets.length] = true;
+
+        // everything up to the first pending record is done
+        while (this.size > 0 && this.acknowledged[this.head]) {
+            this.head = (this.head + 1) % this.offsets.length;
+            this.size--;
+        }
+    }
+
+    /**
+     * @return The offset to commit, which is the one of the first record that is still pending,
+     * or the one after the last added record if all got handled. Is {@code -1} if nothing got added yet.
+     */
+    public synchronized long getCommittable() {
+        return this.size == 0 ? this.nextOffset : this.offsets[this.head];
+    }
+
+    /**
+     * @return The amount of records that are not acknowledged yet or
+     * still wait for a record in front of them.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Forgets all records, as if none got added yet.
+     */
+    public synchronized void reset() {
+        this.head = 0;
+        this.size = 0;
+        this.nextOffset = -1;
+    }
+
+    /**
+     * @return The position of the offset relative to the head or {@code -1}.
+     */
+    private int find(final long offset) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long value = this.offsets[(this.head + middle) % this.offsets.length];
+            if (value < offset) {
+                low = middle + 1;
+            } else if (value > offset) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        final long[] offsets = new long[this.offsets.length * 2];
+        final boolean[] acknowledged = new boolean[offsets.length];
+        for (int i = 0; i < this.size; i++) {
+            final int index = (this.head + i) % this.offsets.length;
+            offsets[i] = this.offsets[index];
+            acknowledged[i] = this.acknowledged[index];
+        }
+        this.offsets = offsets;
+        this.acknowledged = acknowledged;
+        this.head = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PendingOffsets{committable=" + this.getCommittable() + ", pending=" + this.size + "}";
+    }
+
+}
@@ -0,0 +1,262 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * A trie of kebab-case topic patterns, where each node represents one segment
+ * of a pattern. This allows us to find all values whose pattern matches a given topic
+ * by walking the segments of the topic once, instead of matching every single
+ * pattern against it.
+ * <p>
+ * The matching works just like
+ * {@link dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic#getTopicAsRegex(String)}, so
+ * a pattern matches all topics with its segments as prefix and the asterisk '*' matches any segment,
+ * e.g. {@code volix-*} matches {@code volix-party} and {@code volix-party-lobby}.
+ * <p>
+ * The values of every node are kept in arrays sorted by the given comparator, which
+ * get replaced as a whole on every change. Therefore reading is lock-free and
+ * the returned arrays must not be modified. The result of {@link #match(String)}
+ * is cached per topic until the next change, so that matching the same topic
+ * again neither merges nor copies any array.
+ *
+ * @author Tobias Büser
+ */
+public class TopicTrie<V> {
+
+    private static final String WILDCARD = "*";
+
+    /**
+     * The maximum amount of topics to cache the matched values of.
+     */
+    private static final int MAX_CACHED_MATCHES = 4096;
+
+    private final Comparator<? super V> comparator;
+    private final IntFunction<V[]> arrayFactory;
+    private final V[] empty;
+
+    private final Node<V> root;
+
+    /**
+     * Gets replaced as a whole after every change, so that a match which
+     * races with a change can only write into the replaced cache.
+     */
+    private volatile Map<String, V[]> matches = new ConcurrentHashMap<>();
+
+    public TopicTrie(final Comparator<? super V> comparator, final IntFunction<V[]> arrayFactory) {
+        this.comparator = comparator;
+        this.arrayFactory = arrayFactory;
+        this.empty = arrayFactory.apply(0);
+        this.root = new Node<>(this.empty);
+    }
+
+    /**
+     * Adds the value to the node of given pattern. Values with the same order
+     * keep the order they got added in.
+     *
+     * @param pattern The topic pattern
+     * @param value   The value to add
+     */
+    public synchronized void add(final String pattern, final V value) {
+        final Node<V> node = this.getOrCreateNode(pattern);
+        final V[] values = node.values;
+
+        // find the position after all values with an equal or lower order
+        int index = values.length;
+        while (index > 0 && this.comparator.compare(values[index - 1], value) > 0) {
+            index--;
+        }
+
+        final V[] newValues = this.arrayFactory.apply(values.length + 1);
+        System.arraycopy(values, 0, newValues, 0, index);
+        newValues[index] = value;
+        System.arraycopy(values, index, newValues, index + 1, values.length - index);
+
+        node.values = newValues;
+        this.matches = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Removes all values of given pattern that match the filter.
+     *
+     * @param pattern The exact pattern the values got added with
+     * @param filter  The filter
+     *
+     * @return If any value got removed
+     */
+    public synchronized boolean removeIf(final String pattern, final Predicate<V> filter) {
+        final Node<V> node = this.getNode(pattern);
+        if (node == null) return false;
+        final V[] values = node.values;
+
+        final V[] newValues = this.arrayFactory.apply(values.length);
+        int size = 0;
+        for (final V value : values) {
+            if (!filter.test(value)) newValues[size++] = value;
+        }
+        if (size == values.length) return false;
+
+        node.values = size == 0 ? this.empty : Arrays.copyOf(newValues, size);
+        this.matches = new ConcurrentHashMap<>();
+
+        this.prune(pattern);
+        return true;
+    }
+
+    public boolean remove(final String pattern, final V value) {
+        return this.removeIf(pattern, v -> v == value);
+    }
+
+    public boolean removeAll(final String pattern) {
+        return this.removeIf(pattern, v -> true);
+    }
+
+    /**
+     * @param pattern The pattern
+     *
+     * @return The values that got added with exactly this pattern, never {@code null}.
+     */
+    public V[] get(final String pattern) {
+        final Node<V> node = this.getNode(pattern);
+        if (node == null) return this.empty;
+        return node.values;
+    }
+
+    /**
+     * Gets all values, whose pattern matches given topic, sorted by the comparator.
+     * <p>
+     * If the values of only one pattern match, the array of that node is returned
+     * without copying it. Otherwise the merged array is cached for the topic.
+     *
+     * @param topic The topic, e.g. {@code volix-party-lobby}
+     *
+     * @return The sorted values, never {@code null}.
+     */
+    public V[] match(final String topic) {
+        // read the cache before the nodes, so that we never cache an outdated result
+        final Map<String, V[]> matches = this.matches;
+        final V[] cached = matches.get(topic);
+        if (cached != null) return cached;
+
+        final Lookup<V> lookup = new Lookup<>(topic);
+        this.collect(this.root, lookup, 0);
+
+        final V[] result = lookup.result == null ? this.empty : lookup.result;
+        if (matches.size() < MAX_CACHED_MATCHES) {
+            matches.put(topic, result);
+        }
+        return result;
+    }
+
+    private void collect(final Node<V> node, final Lookup<V> lookup, final int start) {
+        // the topic is either the pattern of this node or a subtopic of it
+        if (node != this.root) this.merge(lookup, node.values);
+        if (start > lookup.topic.length()) return;
+
+        int end = lookup.topic.indexOf('-', start);
+        if (end < 0) end = lookup.topic.length();
+
+        final Node<V> child = node.children.get(lookup.topic.substring(start, end));
+        if (child != null) this.collect(child, lookup, end + 1);
+
+        final Node<V> wildcardChild = node.wildcard;
+        if (wildcardChild != null) this.collect(wildcardChild, lookup, end + 1);
+    }
+
+    private void merge(final Lookup<V> lookup, final V[] values) {
+        if (values.length == 0) return;
+        if (lookup.result == null) {
+            lookup.result = values;
+            return;
+        }
+
+        final V[] left = lookup.result;
+        final V[] merged = this.arrayFactory.apply(left.length + values.length);
+        int i = 0, j = 0, k = 0;
+        while (i < left.length && j < values.length) {
+            merged[k++] = this.comparator.compare(left[i], values[j]) <= 0 ? left[i++] : values[j++];
+        }
+        while (i < left.length) merged[k++] = left[i++];
+        while (j < values.length) merged[k++] = values[j++];
+        lookup.result = merged;
+    }
+
+    private Node<V> getNode(final String pattern) {
+        Node<V> node = this.root;
+        for (final String segment : pattern.split("-")) {
+            node = WILDCARD.equals(segment) ? node.wildcard : node.children.get(segment);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    private Node<V> getOrCreateNode(final String pattern) {
+        Node<V> node = this.root;
+        for (final String segment : pattern.split("-")) {
+            if (WILDCARD.equals(segment)) {
+                if (node.wildcard == null) node.wildcard = new Node<>(this.empty);
+                node = node.wildcard;
+            } else {
+                node = node.children.computeIfAbsent(segment, s -> new Node<>(this.empty));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Removes all nodes along the path of given pattern, which
+     * neither contain values nor children anymore.
+     */
+    private void prune(final String pattern) {
+        this.prune(this.root, pattern.split("-"), 0);
+    }
+
+    private boolean prune(final Node<V> node, final String[] segments, final int depth) {
+        if (depth < segments.length) {
+            final String segment = segments[depth];
+            final Node<V> child = WILDCARD.equals(segment) ? node.wildcard : node.children.get(segment);
+
+            if (child != null && this.prune(child, segments, depth + 1)) {
+                if (WILDCARD.equals(segment)) {
+                    node.wildcard = null;
+                } else {
+                    node.children.remove(segment);
+                }
+            }
+        }
+        return node != this.root && node.isEmpty();
+    }
+
+    private static class Node<V> {
+
+        private final Map<String, Node<V>> children = new ConcurrentHashMap<>();
+        private volatile Node<V> wildcard;
+
+        private volatile V[] values;
+
+        private Node(final V[] empty) {
+            this.values = empty;
+        }
+
+        private boolean isEmpty() {
+            return this.values.length == 0 && this.children.isEmpty() && this.wildcard == null;
+        }
+
+    }
+
+    private static class Lookup<V> {
+
+        private final String topic;
+        private V[] result;
+
+        private Lookup(final String topic) {
+            this.topic = topic;
+        }
+
+    }
+
+}
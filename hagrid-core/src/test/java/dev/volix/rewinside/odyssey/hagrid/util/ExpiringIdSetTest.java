@@ -0,0 +1,51 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class ExpiringIdSetTest {
+
+    @Test
+    void containsAddedIds() {
+        final ExpiringIdSet ids = new ExpiringIdSet(1, TimeUnit.MINUTES);
+        ids.add("a");
+        ids.add("b");
+
+        assertTrue(ids.contains("a"));
+        assertTrue(ids.contains("b"));
+        assertFalse(ids.contains("c"));
+        assertEquals(2, ids.size());
+    }
+
+    @Test
+    void forgetsIdsAfterRetention() throws InterruptedException {
+        final ExpiringIdSet ids = new ExpiringIdSet(50, TimeUnit.MILLISECONDS, 2);
+        ids.add("a");
+
+        Thread.sleep(200);
+        assertFalse(ids.contains("a"));
+
+        // the expired bucket gets replaced instead of growing
+        ids.add("b");
+        assertTrue(ids.contains("b"));
+        assertFalse(ids.contains("a"));
+    }
+
+    @Test
+    void clearRemovesAllIds() {
+        final ExpiringIdSet ids = new ExpiringIdSet(1, TimeUnit.MINUTES);
+        ids.add("a");
+        ids.clear();
+
+        assertFalse(ids.contains("a"));
+        assertEquals(0, ids.size());
+    }
+
+}
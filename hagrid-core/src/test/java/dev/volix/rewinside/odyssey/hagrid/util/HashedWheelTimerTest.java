@@ -0,0 +1,82 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class HashedWheelTimerTest {
+
+    @Test
+    void executesTaskAfterDelay() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(10));
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            final HashedWheelTimer.Timeout timeout = timer.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void executesTasksWithMoreRoundsThanTheWheel() throws InterruptedException {
+        // the delay is more than a full round of the wheel
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(10), 4, new DaemonThreadFactory());
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            timer.schedule(latch::countDown, 150, TimeUnit.MILLISECONDS);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void doesNotExecuteCancelledTask() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(10));
+        try {
+            final AtomicBoolean executed = new AtomicBoolean();
+            final HashedWheelTimer.Timeout timeout = timer.schedule(() -> executed.set(true), 50, TimeUnit.MILLISECONDS);
+
+            assertTrue(timeout.cancel());
+            assertFalse(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+
+            // a task scheduled afterwards is executed after the cancelled one would have been
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertFalse(executed.get());
+            assertFalse(timeout.isExpired());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void rejectsTasksAfterStop() {
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(10));
+        timer.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        timer.stop();
+
+        assertThrows(IllegalStateException.class, () -> timer.schedule(() -> { }, 1, TimeUnit.SECONDS));
+    }
+
+}
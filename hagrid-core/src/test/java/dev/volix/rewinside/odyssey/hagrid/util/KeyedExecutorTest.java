@@ -0,0 +1,77 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class KeyedExecutorTest {
+
+    @Test
+    void executesTasksOfSameKeyInOrder() throws InterruptedException {
+        final KeyedExecutor executor = new KeyedExecutor(4, 16, new DaemonThreadFactory());
+        try {
+            final int keys = 8;
+            final int tasksPerKey = 500;
+            final Map<Integer, List<Integer>> executed = new ConcurrentHashMap<>();
+            final CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+
+            for (int i = 0; i < tasksPerKey; i++) {
+                for (int key = 0; key < keys; key++) {
+                    final int task = i;
+                    final int taskKey = key;
+                    executor.execute(taskKey, () -> {
+                        // only one thread executes the tasks of a key at once
+                        executed.computeIfAbsent(taskKey, k -> new ArrayList<>()).add(task);
+                        latch.countDown();
+                    });
+                }
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            for (int key = 0; key < keys; key++) {
+                final List<Integer> tasks = executed.get(key);
+                assertEquals(tasksPerKey, tasks.size());
+                for (int i = 0; i < tasksPerKey; i++) {
+                    assertEquals(i, (int) tasks.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void executesQueuedTasksOnShutdown() throws InterruptedException {
+        final KeyedExecutor executor = new KeyedExecutor(1, 0, new DaemonThreadFactory());
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(10);
+
+        executor.execute("key", () -> {
+            try {
+                blocker.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            executor.execute("key", latch::countDown);
+        }
+        executor.shutdown();
+        blocker.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> executor.execute("key", () -> { }));
+    }
+
+}
@@ -0,0 +1,117 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class PendingOffsetsTest {
+
+    @Test
+    void nothingToCommitBeforeAnyRecord() {
+        final PendingOffsets pending = new PendingOffsets();
+
+        assertEquals(-1, pending.getCommittable());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void committableStopsAtFirstPendingRecord() {
+        final PendingOffsets pending = new PendingOffsets();
+        for (long offset = 10; offset < 15; offset++) {
+            pending.add(offset);
+        }
+
+        pending.acknowledge(12);
+        pending.acknowledge(11);
+        assertEquals(10, pending.getCommittable());
+        assertEquals(5, pending.size());
+
+        pending.acknowledge(10);
+        assertEquals(13, pending.getCommittable());
+        assertEquals(2, pending.size());
+
+        pending.acknowledge(14);
+        assertEquals(13, pending.getCommittable());
+    }
+
+    @Test
+    void committableAfterFullDrainIsNextOffset() {
+        final PendingOffsets pending = new PendingOffsets();
+        for (long offset = 0; offset < 100; offset++) {
+            pending.add(offset);
+        }
+        for (long offset = 99; offset >= 0; offset--) {
+            pending.acknowledge(offset);
+        }
+
+        assertEquals(100, pending.getCommittable());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void growsAcrossWraparound() {
+        final PendingOffsets pending = new PendingOffsets(4);
+        for (long offset = 0; offset < 4; offset++) {
+            pending.add(offset);
+        }
+        pending.acknowledge(0);
+        pending.acknowledge(1);
+
+        // the head is in the middle now, so these wrap around to the start of the buffer
+        pending.add(4);
+        pending.add(5);
+        // the buffer is full and has to grow while wrapped around
+        pending.add(6);
+        pending.add(7);
+        assertEquals(6, pending.size());
+        assertEquals(2, pending.getCommittable());
+
+        pending.acknowledge(5);
+        pending.acknowledge(3);
+        pending.acknowledge(2);
+        assertEquals(4, pending.getCommittable());
+
+        pending.acknowledge(4);
+        assertEquals(6, pending.getCommittable());
+
+        pending.acknowledge(7);
+        pending.acknowledge(6);
+        assertEquals(8, pending.getCommittable());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void ignoresUnknownOffsets() {
+        final PendingOffsets pending = new PendingOffsets();
+        pending.add(5);
+        pending.add(8);
+
+        pending.acknowledge(6);
+        pending.acknowledge(42);
+        assertEquals(5, pending.getCommittable());
+
+        pending.acknowledge(5);
+        pending.acknowledge(5);
+        assertEquals(8, pending.getCommittable());
+    }
+
+    @Test
+    void resetsIfOffsetGoesBackwards() {
+        final PendingOffsets pending = new PendingOffsets();
+        pending.add(10);
+        pending.add(11);
+        pending.acknowledge(10);
+
+        // e.g. the consumer seeked back
+        pending.add(3);
+        assertEquals(3, pending.getCommittable());
+        assertEquals(1, pending.size());
+
+        pending.acknowledge(3);
+        assertEquals(4, pending.getCommittable());
+    }
+
+}
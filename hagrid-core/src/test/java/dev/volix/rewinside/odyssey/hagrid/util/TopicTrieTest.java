@@ -0,0 +1,85 @@
+package dev.volix.rewinside.odyssey.hagrid.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class TopicTrieTest {
+
+    private static final String[] PATTERNS = {
+        "volix", "volix-party", "volix-*", "volix-*-*", "volix-party-*",
+        "volix-*-lobby", "volix-party-lobby", "rewinside", "volix-*-game-*",
+    };
+
+    private static final String[] TOPICS = {
+        "volix", "volix-party", "volix-game", "volix-party-lobby", "volix-foo-lobby",
+        "volix-party-lobby-1", "rewinside-odyssey", "volix-1-game-2", "volix-1-game-2-3",
+        "volixparty", "volix-party-game", "odyssey",
+    };
+
+    private TopicTrie<String> createTrie() {
+        final TopicTrie<String> trie = new TopicTrie<>(Comparator.comparingInt(String::length), String[]::new);
+        for (final String pattern : PATTERNS) {
+            trie.add(pattern, pattern);
+        }
+        return trie;
+    }
+
+    @Test
+    void matchesLikeTopicRegex() {
+        final TopicTrie<String> trie = this.createTrie();
+
+        for (final String topic : TOPICS) {
+            final Set<String> expected = new TreeSet<>();
+            for (final String pattern : PATTERNS) {
+                if (HagridTopic.getTopicAsRegex(pattern).matcher(topic).matches()) expected.add(pattern);
+            }
+
+            assertEquals(expected, new TreeSet<>(Arrays.asList(trie.match(topic))));
+        }
+    }
+
+    @Test
+    void matchesAreSortedByComparator() {
+        final String[] matches = this.createTrie().match("volix-party-lobby");
+
+        for (int i = 1; i < matches.length; i++) {
+            assertTrue(matches[i - 1].length() <= matches[i].length());
+        }
+    }
+
+    @Test
+    void cachedMatchIsReplacedOnChange() {
+        final TopicTrie<String> trie = this.createTrie();
+        final String[] matches = trie.match("volix-party");
+        assertSame(matches, trie.match("volix-party"));
+
+        trie.remove("volix-*", "volix-*");
+        trie.removeAll("volix-party");
+        assertArrayEquals(new String[] {"volix"}, trie.match("volix-party"));
+
+        trie.add("volix-party", "volix-party-again");
+        assertArrayEquals(new String[] {"volix", "volix-party-again"}, trie.match("volix-party"));
+    }
+
+    @Test
+    void getReturnsValuesOfExactPattern() {
+        final TopicTrie<String> trie = this.createTrie();
+        trie.add("volix-*", "volix-*-second");
+
+        assertArrayEquals(new String[] {"volix-*", "volix-*-second"}, trie.get("volix-*"));
+        assertEquals(0, trie.get("volix-lobby").length);
+    }
+
+}
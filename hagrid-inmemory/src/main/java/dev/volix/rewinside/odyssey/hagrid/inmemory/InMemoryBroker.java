@@ -0,0 +1,140 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process pub/sub system, so that services in the same JVM can
+ * talk to each other without a Kafka broker, e.g. for testing.
+ * <p>
+ * Just like Kafka, every topic is split into partitions and every consumer group
+ * keeps its own offsets. Packets are passed on as they are, without serializing them.
+ * Every partition only keeps the latest {@code capacity} records, so a consumer that
+ * falls behind further than that skips the records that got overwritten.
+ *
+ * @author Tobias Büser
+ */
+public class InMemoryBroker {
+
+    private static volatile InMemoryBroker defaultBroker;
+
+    private final int partitionCount;
+    private final int capacity;
+
+    private final Map<String, InMemoryTopic> topics = new ConcurrentHashMap<>();
+    private final Map<String, InMemoryConsumerGroup> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented with every published record, so that waiting
+     * subscribers know when to look for new records.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger waitingSubscribers = new AtomicInteger();
+    private final Object signal = new Object();
+
+    /**
+     * @param partitionCount The amount of partitions of every topic
+     * @param capacity       The amount of records every partition keeps,
+     *                       gets rounded up to the next power of two.
+     */
+    public InMemoryBroker(final int partitionCount, final int capacity) {
+        if (partitionCount <= 0) throw new IllegalArgumentException("partition count must be greater than 0");
+        if (capacity <= 0 || capacity > (1 << 30)) throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+
+        this.partitionCount = partitionCount;
+
+        int powerOfTwo = 1;
+        while (powerOfTwo < capacity) {
+            powerOfTwo <<= 1;
+        }
+        this.capacity = powerOfTwo;
+    }
+
+    public InMemoryBroker() {
+        this(4, 1 << 16);
+    }
+
+    /**
+     * @return A lazily created broker, that can be shared by all services of the JVM.
+     */
+    public static InMemoryBroker getDefault() {
+        InMemoryBroker broker = defaultBroker;
+        if (broker == null) {
+            synchronized (InMemoryBroker.class) {
+                broker = defaultBroker;
+                if (broker == null) {
+                    broker = new InMemoryBroker();
+                    defaultBroker = broker;
+                }
+            }
+        }
+        return broker;
+    }
+
+    /**
+     * Appends the packet to the topic, which gets created if it does not exist yet.
+     *
+     * @param topic  The concrete topic, e.g. {@code volix-party}
+     * @param key    The key to determine the partition with, can be {@code null}
+     * @param packet The packet
+     */
+    public void publish(final String topic, final String key, final Packet packet) {
+        this.getOrCreateTopic(topic).append(key, packet, System.currentTimeMillis());
+        this.sequence.incrementAndGet();
+
+        if (this.waitingSubscribers.get() > 0) {
+            synchronized (this.signal) {
+                this.signal.notifyAll();
+            }
+        }
+    }
+
+    InMemoryTopic getOrCreateTopic(final String topic) {
+        final InMemoryTopic existing = this.topics.get(topic);
+        if (existing != null) return existing;
+        return this.topics.computeIfAbsent(topic, name -> new InMemoryTopic(name, this.partitionCount, this.capacity));
+    }
+
+    Collection<InMemoryTopic> getTopics() {
+        return this.topics.values();
+    }
+
+    InMemoryConsumerGroup getGroup(final String groupId) {
+        return this.groups.computeIfAbsent(groupId, InMemoryConsumerGroup::new);
+    }
+
+    long getSequence() {
+        return this.sequence.get();
+    }
+
+    /**
+     * Blocks until a record got published after the given sequence or the timeout is reached.
+     *
+     * @param seenSequence The sequence before looking for records
+     * @param timeout      The maximum time to wait
+     * @param unit         The unit of the timeout
+     */
+    void awaitRecords(final long seenSequence, final long timeout, final TimeUnit unit) {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        this.waitingSubscribers.incrementAndGet();
+        try {
+            synchronized (this.signal) {
+                long remaining;
+                while (this.sequence.get() == seenSequence && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this.signal, remaining);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.waitingSubscribers.decrementAndGet();
+        }
+    }
+
+}
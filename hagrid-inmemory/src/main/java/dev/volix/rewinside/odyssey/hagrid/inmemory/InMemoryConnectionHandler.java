@@ -0,0 +1,20 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridConnectionHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridService;
+
+/**
+ * @author Tobias Büser
+ */
+public class InMemoryConnectionHandler extends HagridConnectionHandler {
+
+    public InMemoryConnectionHandler(final HagridService service) {
+        super(service);
+    }
+
+    @Override
+    public void checkConnection() {
+        // the broker lives in the same JVM, so it is always reachable
+    }
+
+}
@@ -0,0 +1,96 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the offsets of a consumer group and assigns the partitions of
+ * a topic to the members that subscribed to it, so that every record
+ * is only received once per group.
+ *
+ * @author Tobias Büser
+ */
+class InMemoryConsumerGroup {
+
+    private final String groupId;
+
+    private final List<InMemoryHagridSubscriber> members = new CopyOnWriteArrayList<>();
+
+    /**
+     * The offset of the next record to read, mapped by the topic and the partition.
+     */
+    private final Map<String, AtomicLong[]> offsets = new ConcurrentHashMap<>();
+
+    InMemoryConsumerGroup(final String groupId) {
+        this.groupId = groupId;
+    }
+
+    void join(final InMemoryHagridSubscriber member) {
+        if (!this.members.contains(member)) this.members.add(member);
+    }
+
+    void leave(final InMemoryHagridSubscriber member) {
+        this.members.remove(member);
+    }
+
+    /**
+     * Just like Kafka, every partition of a topic is assigned to exactly one of
+     * the members that subscribed to the topic.
+     *
+     * @param member    The member that wants to read
+     * @param topic     The topic
+     * @param partition The partition of the topic
+     *
+     * @return If the member is the one that is allowed to read the partition.
+     */
+    boolean isAssigned(final InMemoryHagridSubscriber member, final String topic, final int partition) {
+        int subscribed = 0;
+        int memberIndex = -1;
+        for (final InMemoryHagridSubscriber other : this.members) {
+            if (!other.isSubscribed(topic)) continue;
+            if (other == member) memberIndex = subscribed;
+            subscribed++;
+        }
+        return memberIndex >= 0 && partition % subscribed == memberIndex;
+    }
+
+    /**
+     * @param topic The topic
+     *
+     * @return The offsets of all partitions of the topic. Partitions whose offset is
+     * not initialized yet start at the beginning of the partition.
+     */
+    AtomicLong[] getOffsets(final InMemoryTopic topic) {
+        return this.offsets.computeIfAbsent(topic.getName(), name -> {
+            final AtomicLong[] partitionOffsets = new AtomicLong[topic.getPartitionCount()];
+            for (int i = 0; i < partitionOffsets.length; i++) {
+                partitionOffsets[i] = new AtomicLong();
+            }
+            return partitionOffsets;
+        });
+    }
+
+    /**
+     * Initializes the offsets of the topic to the current end of every partition,
+     * if the group did not read from it yet, so that it only receives new records.
+     *
+     * @param topic The topic
+     */
+    void seekToEndIfAbsent(final InMemoryTopic topic) {
+        this.offsets.computeIfAbsent(topic.getName(), name -> {
+            final AtomicLong[] partitionOffsets = new AtomicLong[topic.getPartitionCount()];
+            for (int i = 0; i < partitionOffsets.length; i++) {
+                partitionOffsets[i] = new AtomicLong(topic.getPartition(i).getHead());
+            }
+            return partitionOffsets;
+        });
+    }
+
+    String getGroupId() {
+        return this.groupId;
+    }
+
+}
@@ -0,0 +1,61 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridPublisher;
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publisher that appends the packets directly to an {@link InMemoryBroker},
+ * so that the push is acknowledged immediately.
+ *
+ * @author Tobias Büser
+ */
+public class InMemoryHagridPublisher implements HagridPublisher {
+
+    private static final CompletableFuture<Void> ACKNOWLEDGED = CompletableFuture.completedFuture(null);
+
+    private final InMemoryBroker broker;
+    private volatile boolean open = false;
+
+    public InMemoryHagridPublisher(final InMemoryBroker broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public void open() {
+        this.open = true;
+    }
+
+    @Override
+    public void close() {
+        this.open = false;
+    }
+
+    @Override
+    public CompletableFuture<Void> push(final String topic, final String key, final Packet packet) {
+        if (!this.open) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("publisher is closed"));
+            return future;
+        }
+
+        this.broker.publish(topic, key, packet);
+        return ACKNOWLEDGED;
+    }
+
+    @Override
+    public CompletableFuture<Void> pushAll(final List<Record> records) {
+        if (!this.open) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("publisher is closed"));
+            return future;
+        }
+
+        for (final Record record : records) {
+            this.broker.publish(record.getTopic(), record.getKey(), record.getPacket());
+        }
+        return ACKNOWLEDGED;
+    }
+
+}
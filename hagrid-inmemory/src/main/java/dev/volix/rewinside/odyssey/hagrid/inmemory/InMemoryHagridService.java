@@ -0,0 +1,181 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.CommunicationHandler;
+import dev.volix.rewinside.odyssey.hagrid.ConnectionHandler;
+import dev.volix.rewinside.odyssey.hagrid.DownstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridCommunicationHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridConfig;
+import dev.volix.rewinside.odyssey.hagrid.HagridDownstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.HagridPacketWizard;
+import dev.volix.rewinside.odyssey.hagrid.HagridService;
+import dev.volix.rewinside.odyssey.hagrid.HagridUpstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.PacketWizard;
+import dev.volix.rewinside.odyssey.hagrid.UpstreamHandler;
+import dev.volix.rewinside.odyssey.hagrid.config.PropertiesConfig;
+import dev.volix.rewinside.odyssey.hagrid.metrics.HagridMetrics;
+import dev.volix.rewinside.odyssey.hagrid.util.HashedWheelTimer;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.UUID;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Service that uses an {@link InMemoryBroker} instead of an external pub/sub system,
+ * so that services in the same JVM can communicate with each other.
+ *
+ * @author Tobias Büser
+ */
+public class InMemoryHagridService implements HagridService {
+
+    private final Logger logger;
+
+    private final PropertiesConfig hagridConfig;
+    private final HagridMetrics metrics;
+    private final InMemoryBroker broker;
+
+    private final InMemoryConnectionHandler connectionHandler;
+    private final HagridUpstreamHandler upstreamHandler;
+    private final HagridDownstreamHandler downstreamHandler;
+    private final HagridCommunicationHandler communicationHandler;
+
+    /**
+     * One timer for all timeouts of this service.
+     */
+    private final HashedWheelTimer timer;
+    private volatile boolean shutdown = false;
+
+    private InMemoryHagridService(final InMemoryBroker broker, final String groupId,
+                                  final HagridConfig hagridConfig, final HagridMetrics metrics, final Logger logger) {
+        this.hagridConfig = hagridConfig;
+        this.metrics = metrics;
+        this.broker = broker;
+        this.logger = logger;
+
+        this.getLogger().info("Using in-memory broker with groupId '{}'", groupId);
+
+        this.timer = new HashedWheelTimer(
+            Duration.ofMillis(hagridConfig.getInt(HagridConfig.TIMER_TICK_DURATION_IN_MILLIS)));
+
+        this.connectionHandler = new InMemoryConnectionHandler(this);
+        this.upstreamHandler = new HagridUpstreamHandler(this, new InMemoryHagridPublisher(broker));
+        this.downstreamHandler = new HagridDownstreamHandler(this, () -> new InMemoryHagridSubscriber(broker, groupId), this.timer);
+        this.communicationHandler = new HagridCommunicationHandler(this, this.timer);
+    }
+
+    public static Builder create() {
+        return new Builder();
+    }
+
+    @Override
+    public Logger getLogger() {
+        return this.logger;
+    }
+
+    @Override
+    public PropertiesConfig getConfiguration() {
+        return this.hagridConfig;
+    }
+
+    @Override
+    public void shutdown() {
+        if (this.shutdown) return;
+        this.shutdown = true;
+
+        this.disconnect();
+        this.connectionHandler.shutdown();
+        this.upstreamHandler.shutdown();
+        this.downstreamHandler.shutdown();
+        this.communicationHandler.shutdown();
+        this.timer.stop();
+    }
+
+    @Override
+    public PacketWizard wizard() {
+        return new HagridPacketWizard(this);
+    }
+
+    @Override
+    public ConnectionHandler connection() {
+        return this.connectionHandler;
+    }
+
+    @Override
+    public UpstreamHandler upstream() {
+        return this.upstreamHandler;
+    }
+
+    @Override
+    public DownstreamHandler downstream() {
+        return this.downstreamHandler;
+    }
+
+    @Override
+    public CommunicationHandler communication() {
+        return this.communicationHandler;
+    }
+
+    @Override
+    public HagridMetrics metrics() {
+        return this.metrics;
+    }
+
+    public InMemoryBroker getBroker() {
+        return this.broker;
+    }
+
+    public static class Builder {
+
+        private Logger logger = LogManager.getLogger(InMemoryHagridService.class);
+
+        private HagridConfig hagridConfig = new HagridConfig(new Properties());
+        private HagridMetrics metrics = HagridMetrics.NOOP;
+
+        private InMemoryBroker broker = InMemoryBroker.getDefault();
+        private String groupId = "";
+
+        Builder() {
+
+        }
+
+        public Builder withLogger(final Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        public Builder withHagridConfig(final Properties properties) {
+            this.hagridConfig = new HagridConfig(properties);
+            return this;
+        }
+
+        /**
+         * @param broker The broker to use. Services can only communicate with
+         *               each other, if they use the same broker.
+         */
+        public Builder withBroker(final InMemoryBroker broker) {
+            this.broker = broker;
+            return this;
+        }
+
+        public Builder withMetrics(final HagridMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder withGroupId(final String groupId) {
+            this.groupId = groupId;
+            return this;
+        }
+
+        public Builder withRandomGroupId() {
+            return this.withGroupId("");
+        }
+
+        public InMemoryHagridService build() {
+            final String actualGroupId = this.groupId.isEmpty() ? UUID.randomUUID().toString() : this.groupId;
+            return new InMemoryHagridService(this.broker, actualGroupId, this.hagridConfig, this.metrics, this.logger);
+        }
+
+    }
+
+}
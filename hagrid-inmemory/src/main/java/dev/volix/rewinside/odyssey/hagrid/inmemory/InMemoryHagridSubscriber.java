@@ -0,0 +1,176 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.HagridSubscriber;
+import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscriber that reads from an {@link InMemoryBroker} as a member of a consumer group.
+ * <p>
+ * Just like the Kafka subscriber, a concrete topic is received if it matches the
+ * {@link HagridTopic#getRegexPattern()} of any subscribed topic. Topics that already
+ * exist when subscribing are only read from their end, topics that get created
+ * afterwards from their beginning.
+ *
+ * @author Tobias Büser
+ */
+public class InMemoryHagridSubscriber implements HagridSubscriber {
+
+    private static final int MAX_POLL_RECORDS = 500;
+    private static final long POLL_TIMEOUT_IN_MILLIS = 100;
+
+    private final InMemoryBroker broker;
+    private final InMemoryConsumerGroup group;
+
+    private final Map<String, HagridTopic<?>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * If a concrete topic matches any of the subscribed topics,
+     * so that we do not have to match the regex on every poll.
+     */
+    private final Map<String, Boolean> subscriptions = new ConcurrentHashMap<>();
+
+    private volatile boolean open = false;
+    private volatile boolean paused = false;
+
+    /**
+     * The concrete topics that are paused on their own, only accessed by the polling thread.
+     */
+    private final Set<String> pausedTopics = new HashSet<>();
+
+    public InMemoryHagridSubscriber(final InMemoryBroker broker, final String groupId) {
+        this.broker = broker;
+        this.group = broker.getGroup(groupId);
+    }
+
+    @Override
+    public void open() {
+        this.open = true;
+        this.paused = false;
+        this.pausedTopics.clear();
+        this.group.join(this);
+    }
+
+    @Override
+    public void close() {
+        this.open = false;
+        this.group.leave(this);
+    }
+
+    @Override
+    public List<HagridTopic<?>> getTopics() {
+        return new ArrayList<>(this.topics.values());
+    }
+
+    @Override
+    public void unsubscribe(final HagridTopic<?> topic) {
+        if (this.topics.remove(topic.getPattern()) == null) return;
+        this.subscriptions.clear();
+    }
+
+    @Override
+    public void subscribe(final HagridTopic<?> topic) {
+        if (this.topics.putIfAbsent(topic.getPattern(), topic) != null) return;
+        this.subscriptions.clear();
+
+        for (final InMemoryTopic existingTopic : this.broker.getTopics()) {
+            if (topic.getRegexPattern().matcher(existingTopic.getName()).matches()) {
+                this.group.seekToEndIfAbsent(existingTopic);
+            }
+        }
+    }
+
+    boolean isSubscribed(final String topic) {
+        return this.subscriptions.computeIfAbsent(topic, name -> {
+            for (final HagridTopic<?> subscribedTopic : this.topics.values()) {
+                if (subscribedTopic.getRegexPattern().matcher(name).matches()) return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public List<Record> poll() {
+        final List<Record> records = new ArrayList<>();
+        this.poll((topic, partition, offset, key, packet, timestamp) ->
+            records.add(new Record(topic, partition, offset, key, packet, timestamp)));
+        return records;
+    }
+
+    @Override
+    public int poll(final RecordHandler handler) {
+        if (!this.open) return 0;
+
+        final long sequence = this.broker.getSequence();
+        int records = this.fetch(handler);
+        if (records == 0) {
+            this.broker.awaitRecords(sequence, POLL_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+            records = this.fetch(handler);
+        }
+        return records;
+    }
+
+    private int fetch(final RecordHandler handler) {
+        if (this.paused) return 0;
+        int records = 0;
+
+        for (final InMemoryTopic topic : this.broker.getTopics()) {
+            if (!this.isSubscribed(topic.getName()) || this.pausedTopics.contains(topic.getName())) continue;
+            final AtomicLong[] offsets = this.group.getOffsets(topic);
+
+            for (int partitionIndex = 0; partitionIndex < topic.getPartitionCount(); partitionIndex++) {
+                if (!this.group.isAssigned(this, topic.getName(), partitionIndex)) continue;
+                final InMemoryPartition partition = topic.getPartition(partitionIndex);
+                final AtomicLong offset = offsets[partitionIndex];
+
+                // skip the records that got already overwritten
+                long current = Math.max(offset.get(), partition.getEarliest());
+                final long head = partition.getHead();
+
+                while (current < head && records < MAX_POLL_RECORDS) {
+                    final InMemoryRecord record = partition.get(current);
+                    if (record == null) {
+                        // got overwritten while reading
+                        current = partition.getEarliest();
+                        continue;
+                    }
+                    handler.handle(topic.getName(), partitionIndex, current, record.getKey(), record.getPacket(), record.getTimestamp());
+                    records++;
+                    current++;
+                }
+                offset.set(current);
+
+                if (records >= MAX_POLL_RECORDS) return records;
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public void pause() {
+        this.paused = true;
+    }
+
+    @Override
+    public void resume() {
+        this.paused = false;
+    }
+
+    @Override
+    public void pause(final String topic) {
+        this.pausedTopics.add(topic);
+    }
+
+    @Override
+    public void resume(final String topic) {
+        this.pausedTopics.remove(topic);
+    }
+
+}
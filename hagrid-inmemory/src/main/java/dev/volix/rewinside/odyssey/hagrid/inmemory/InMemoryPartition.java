@@ -0,0 +1,66 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A partition of a topic, which keeps the latest records in a ring buffer.
+ * <p>
+ * Appending is synchronized, but reading is lock-free: every slot holds
+ * an immutable record with its offset, so that a reader can tell if the record
+ * it wants to read got already overwritten.
+ *
+ * @author Tobias Büser
+ */
+class InMemoryPartition {
+
+    private final AtomicReferenceArray<InMemoryRecord> ring;
+    private final int mask;
+
+    /**
+     * The offset of the next record to append.
+     */
+    private volatile long head = 0;
+
+    /**
+     * @param capacity The amount of records to keep, has to be a power of two.
+     */
+    InMemoryPartition(final int capacity) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    synchronized long append(final String key, final Packet packet, final long timestamp) {
+        final long offset = this.head;
+        this.ring.set((int) (offset & this.mask), new InMemoryRecord(offset, key, packet, timestamp));
+        this.head = offset + 1;
+        return offset;
+    }
+
+    /**
+     * @param offset The offset of the record
+     *
+     * @return The record or {@code null}, if it does not exist (yet) or got overwritten.
+     */
+    InMemoryRecord get(final long offset) {
+        if (offset >= this.head) return null;
+
+        final InMemoryRecord record = this.ring.get((int) (offset & this.mask));
+        return record != null && record.getOffset() == offset ? record : null;
+    }
+
+    /**
+     * @return The offset of the next record that will be appended.
+     */
+    long getHead() {
+        return this.head;
+    }
+
+    /**
+     * @return The offset of the oldest record, that did not get overwritten yet.
+     */
+    long getEarliest() {
+        return Math.max(0, this.head - this.ring.length());
+    }
+
+}
@@ -0,0 +1,40 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+
+/**
+ * A packet that got published to a partition of the {@link InMemoryBroker}.
+ *
+ * @author Tobias Büser
+ */
+class InMemoryRecord {
+
+    private final long offset;
+    private final String key;
+    private final Packet packet;
+    private final long timestamp;
+
+    InMemoryRecord(final long offset, final String key, final Packet packet, final long timestamp) {
+        this.offset = offset;
+        this.key = key;
+        this.packet = packet;
+        this.timestamp = timestamp;
+    }
+
+    long getOffset() {
+        return this.offset;
+    }
+
+    String getKey() {
+        return this.key;
+    }
+
+    Packet getPacket() {
+        return this.packet;
+    }
+
+    long getTimestamp() {
+        return this.timestamp;
+    }
+
+}
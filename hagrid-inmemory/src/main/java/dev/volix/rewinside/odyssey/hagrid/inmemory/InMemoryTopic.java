@@ -0,0 +1,56 @@
+package dev.volix.rewinside.odyssey.hagrid.inmemory;
+
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concrete topic of the {@link InMemoryBroker}, which is split into partitions.
+ * <p>
+ * Just like with Kafka, packets with the same key always end up in the same partition,
+ * so that their order is kept. This includes the empty key, which is the default key
+ * of the {@link dev.volix.rewinside.odyssey.hagrid.PacketWizard}. Only packets without
+ * any key ({@code null}) are distributed round robin.
+ *
+ * @author Tobias Büser
+ */
+class InMemoryTopic {
+
+    private final String name;
+    private final InMemoryPartition[] partitions;
+
+    private final AtomicInteger nextPartition = new AtomicInteger();
+
+    InMemoryTopic(final String name, final int partitionCount, final int capacity) {
+        this.name = name;
+        this.partitions = new InMemoryPartition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            this.partitions[i] = new InMemoryPartition(capacity);
+        }
+    }
+
+    void append(final String key, final Packet packet, final long timestamp) {
+        this.partitions[this.partitionFor(key)].append(key, packet, timestamp);
+    }
+
+    private int partitionFor(final String key) {
+        if (this.partitions.length == 1) return 0;
+        if (key == null) {
+            return (this.nextPartition.getAndIncrement() & Integer.MAX_VALUE) % this.partitions.length;
+        }
+        final int hash = key.hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % this.partitions.length;
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    InMemoryPartition getPartition(final int partition) {
+        return this.partitions[partition];
+    }
+
+    int getPartitionCount() {
+        return this.partitions.length;
+    }
+
+}
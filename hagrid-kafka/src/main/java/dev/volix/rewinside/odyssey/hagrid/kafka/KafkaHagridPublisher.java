@@ -2,13 +2,14 @@ package dev.volix.rewinside.odyssey.hagrid.kafka;
 
 import dev.volix.rewinside.odyssey.hagrid.HagridPublisher;
 import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.clients.producer.RecordMetadata;
 
 /**
  * @author Tobias Büser
@@ -35,13 +36,51 @@ public class KafkaHagridPublisher implements HagridPublisher {
     }
 
     @Override
-    public void push(final String topic, final String key, final Packet packet) {
-        final Future<RecordMetadata> future = this.producer.send(new ProducerRecord<>(topic, key, packet));
-        try {
-            future.get();
-        } catch (final InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
+    public CompletableFuture<Void> push(final String topic, final String key, final Packet packet) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        // the callback gets executed on the I/O thread of the producer,
+        // so we only complete the future there and nothing more.
+        this.producer.send(new ProducerRecord<>(topic, key, packet), (metadata, exception) -> {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> pushAll(final List<Record> records) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        if (records.isEmpty()) {
+            future.complete(null);
+            return future;
+        }
+
+        // one callback for the whole batch, which completes the
+        // future as soon as the last record got acknowledged.
+        final AtomicInteger remaining = new AtomicInteger(records.size());
+        final Callback callback = (metadata, exception) -> {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else if (remaining.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        };
+
+        for (final Record record : records) {
+            try {
+                this.producer.send(new ProducerRecord<>(record.getTopic(), record.getKey(), record.getPacket()), callback);
+            } catch (final RuntimeException ex) {
+                // e.g. if the metadata could not be fetched within max.block.ms,
+                // the records sent before can never complete the future on their own
+                future.completeExceptionally(ex);
+                break;
+            }
         }
+        return future;
     }
 
 }
@@ -12,6 +12,9 @@ import dev.volix.rewinside.odyssey.hagrid.HagridUpstreamHandler;
 import dev.volix.rewinside.odyssey.hagrid.PacketWizard;
 import dev.volix.rewinside.odyssey.hagrid.UpstreamHandler;
 import dev.volix.rewinside.odyssey.hagrid.config.PropertiesConfig;
+import dev.volix.rewinside.odyssey.hagrid.metrics.HagridMetrics;
+import dev.volix.rewinside.odyssey.hagrid.util.HashedWheelTimer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -31,6 +34,7 @@ public class KafkaHagridService implements HagridService {
     private final Logger logger;
 
     private final PropertiesConfig hagridConfig;
+    private final HagridMetrics metrics;
     private final Properties kafkaProperties;
 
     private final KafkaConnectionHandler connectionHandler;
@@ -38,9 +42,17 @@ public class KafkaHagridService implements HagridService {
     private final HagridDownstreamHandler downstreamHandler;
     private final HagridCommunicationHandler communicationHandler;
 
+    /**
+     * One timer for all timeouts of this service.
+     */
+    private final HashedWheelTimer timer;
+    private volatile boolean shutdown = false;
+
     private KafkaHagridService(final List<String> brokerAddresses, final String groupId, final KafkaAuth auth,
-                               final HagridConfig hagridConfig, final Properties kafkaProperties, final Logger logger) {
+                               final HagridConfig hagridConfig, final HagridMetrics metrics,
+                               final Properties kafkaProperties, final Logger logger) {
         this.hagridConfig = hagridConfig;
+        this.metrics = metrics;
         this.kafkaProperties = kafkaProperties;
         this.logger = logger;
 
@@ -62,10 +74,15 @@ public class KafkaHagridService implements HagridService {
         this.kafkaProperties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         this.kafkaProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaPacketDeserializer.class);
 
+        this.timer = new HashedWheelTimer(
+            Duration.ofMillis(hagridConfig.getInt(HagridConfig.TIMER_TICK_DURATION_IN_MILLIS)));
+
         this.connectionHandler = new KafkaConnectionHandler(this, this.kafkaProperties);
         this.upstreamHandler = new HagridUpstreamHandler(this, new KafkaHagridPublisher(this.kafkaProperties));
-        this.downstreamHandler = new HagridDownstreamHandler(this, () -> new KafkaHagridSubscriber(this.kafkaProperties));
-        this.communicationHandler = new HagridCommunicationHandler(this);
+        this.downstreamHandler = new HagridDownstreamHandler(this, () -> new KafkaHagridSubscriber(this.kafkaProperties,
+            hagridConfig.getInt(HagridConfig.POLL_TIMEOUT_MIN_IN_MILLIS), hagridConfig.getInt(HagridConfig.POLL_TIMEOUT_MAX_IN_MILLIS),
+            hagridConfig.getInt(HagridConfig.COMMIT_INTERVAL_IN_MILLIS), this.logger), this.timer);
+        this.communicationHandler = new HagridCommunicationHandler(this, this.timer);
     }
 
     public static Builder create() {
@@ -82,6 +99,19 @@ public class KafkaHagridService implements HagridService {
         return this.hagridConfig;
     }
 
+    @Override
+    public void shutdown() {
+        if (this.shutdown) return;
+        this.shutdown = true;
+
+        this.disconnect();
+        this.connectionHandler.shutdown();
+        this.upstreamHandler.shutdown();
+        this.downstreamHandler.shutdown();
+        this.communicationHandler.shutdown();
+        this.timer.stop();
+    }
+
     @Override
     public PacketWizard wizard() {
         return new HagridPacketWizard(this);
@@ -107,11 +137,17 @@ public class KafkaHagridService implements HagridService {
         return this.communicationHandler;
     }
 
+    @Override
+    public HagridMetrics metrics() {
+        return this.metrics;
+    }
+
     public static class Builder {
 
         private Logger logger = LogManager.getLogger(KafkaHagridService.class);
 
         private HagridConfig hagridConfig = new HagridConfig(new Properties());
+        private HagridMetrics metrics = HagridMetrics.NOOP;
         private Properties kafkaProperties = new Properties();
 
         private String groupId = "";
@@ -137,6 +173,11 @@ public class KafkaHagridService implements HagridService {
             return this;
         }
 
+        public Builder withMetrics(final HagridMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         public Builder withGroupId(final String groupId) {
             this.groupId = groupId;
             return this;
@@ -162,7 +203,7 @@ public class KafkaHagridService implements HagridService {
         }
 
         public KafkaHagridService build() {
-            return new KafkaHagridService(this.brokerAddresses, this.groupId, this.auth, this.hagridConfig, this.kafkaProperties, this.logger);
+            return new KafkaHagridService(this.brokerAddresses, this.groupId, this.auth, this.hagridConfig, this.metrics, this.kafkaProperties, this.logger);
         }
 
     }
@@ -3,39 +3,200 @@ package dev.volix.rewinside.odyssey.hagrid.kafka;
 import dev.volix.rewinside.odyssey.hagrid.HagridSubscriber;
 import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
 import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
+import dev.volix.rewinside.odyssey.hagrid.util.AdaptivePollTimeout;
+import dev.volix.rewinside.odyssey.hagrid.util.PendingOffsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.record.TimestampType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
+ * Subscriber that reads from Kafka as a member of a consumer group.
+ * <p>
+ * All subscribed topics are combined into one regex subscription, which is only
+ * applied on the next poll. So subscribing to a lot of topics at once only
+ * changes the subscription of the consumer and rebalances the group once.
+ * <p>
+ * With a commit interval, the offsets are not committed automatically anymore, but only
+ * up to the records that got {@link #acknowledge(String, int, long) acknowledged}, so that
+ * every record whose listeners did not run yet is received again after a crash.
+ * The offsets of all partitions are committed together and asynchronously.
+ *
  * @author Tobias Büser
  */
 public class KafkaHagridSubscriber implements HagridSubscriber {
 
-    private final Map<String, HagridTopic<?>> topics = new HashMap<>();
+    private final Map<String, HagridTopic<?>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * If the topics changed since the subscription got applied to the consumer.
+     */
+    private volatile boolean subscriptionChanged = false;
+
     private final Properties properties;
+    private final boolean autoCommit;
+    private final Logger logger;
+
+    /**
+     * How often the acknowledged offsets are committed, {@code 0} if the
+     * consumer commits the polled offsets automatically instead.
+     */
+    private final long commitIntervalInMillis;
+    private final Map<TopicPartition, PendingOffsets> pendingOffsets = new ConcurrentHashMap<>();
+
+    // only accessed by the polling thread
+    private final Map<TopicPartition, Long> committedOffsets = new HashMap<>();
+    private long nextCommit = 0;
 
     private Consumer<String, Packet> consumer;
 
+    /**
+     * Short while records come in, longer while the subscriber is idle,
+     * only accessed by the polling thread.
+     */
+    private final AdaptivePollTimeout pollTimeout;
+
+    /**
+     * If fetching is paused, so that partitions that get
+     * assigned during a rebalance are paused as well.
+     */
+    private boolean paused = false;
+
+    /**
+     * The concrete topics whose partitions are paused on their own,
+     * only accessed by the polling thread.
+     */
+    private final Set<String> pausedTopics = new HashSet<>();
+    private final ConsumerRebalanceListener rebalanceListener = new ConsumerRebalanceListener() {
+        @Override
+        public void onPartitionsRevoked(final Collection<TopicPartition> partitions) {
+            if (partitions.isEmpty()) return;
+            if (KafkaHagridSubscriber.this.commitIntervalInMillis > 0) {
+                // records that are still being handled will be received by the next owner again
+                try {
+                    KafkaHagridSubscriber.this.commitSync(partitions);
+                } catch (final RuntimeException ex) {
+                    KafkaHagridSubscriber.this.logger.warn("Could not commit the offsets of the revoked partitions {}, "
+                        + "their uncommitted records will be received again", partitions, ex);
+                }
+                for (final TopicPartition partition : partitions) {
+                    KafkaHagridSubscriber.this.pendingOffsets.remove(partition);
+                    KafkaHagridSubscriber.this.committedOffsets.remove(partition);
+                }
+                return;
+            }
+            if (!KafkaHagridSubscriber.this.autoCommit) return;
+
+            // commit what we polled, so that the next owner of the partitions,
+            // e.g. a subscriber the topic got moved to, continues right after it
+            final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (final TopicPartition partition : partitions) {
+                offsets.put(partition, new OffsetAndMetadata(KafkaHagridSubscriber.this.consumer.position(partition)));
+            }
+            try {
+                KafkaHagridSubscriber.this.consumer.commitSync(offsets);
+            } catch (final RuntimeException ex) {
+                KafkaHagridSubscriber.this.logger.warn("Could not commit the offsets of the revoked partitions {}, "
+                    + "their uncommitted records will be received again", partitions, ex);
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(final Collection<TopicPartition> partitions) {
+            if (KafkaHagridSubscriber.this.paused) {
+                KafkaHagridSubscriber.this.consumer.pause(partitions);
+            } else if (!KafkaHagridSubscriber.this.pausedTopics.isEmpty()) {
+                KafkaHagridSubscriber.this.consumer.pause(
+                    KafkaHagridSubscriber.this.getPartitions(partitions, KafkaHagridSubscriber.this.pausedTopics::contains));
+            }
+        }
+    };
+
+    /**
+     * @param properties             The properties of the kafka consumer
+     * @param minPollTimeoutInMillis The timeout of a poll while records are received
+     * @param maxPollTimeoutInMillis The timeout of a poll while the subscriber is idle
+     * @param commitIntervalInMillis How often the acknowledged offsets are committed,
+     *                               {@code 0} to let the consumer commit the polled offsets automatically
+     * @param logger                 The logger for errors that can not be passed on to the caller
+     */
+    public KafkaHagridSubscriber(final Properties properties, final long minPollTimeoutInMillis,
+                                 final long maxPollTimeoutInMillis, final long commitIntervalInMillis, final Logger logger) {
+        this.logger = logger;
+        this.commitIntervalInMillis = Math.max(commitIntervalInMillis, 0);
+        if (this.commitIntervalInMillis > 0) {
+            this.properties = new Properties();
+            this.properties.putAll(properties);
+            this.properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        } else {
+            this.properties = properties;
+        }
+        this.autoCommit = Boolean.parseBoolean(String.valueOf(
+            this.properties.getOrDefault(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "true")));
+        this.pollTimeout = new AdaptivePollTimeout(minPollTimeoutInMillis, maxPollTimeoutInMillis);
+    }
+
+    public KafkaHagridSubscriber(final Properties properties, final long minPollTimeoutInMillis,
+                                 final long maxPollTimeoutInMillis, final long commitIntervalInMillis) {
+        this(properties, minPollTimeoutInMillis, maxPollTimeoutInMillis, commitIntervalInMillis,
+            LogManager.getLogger(KafkaHagridSubscriber.class));
+    }
+
+    public KafkaHagridSubscriber(final Properties properties, final long minPollTimeoutInMillis, final long maxPollTimeoutInMillis) {
+        this(properties, minPollTimeoutInMillis, maxPollTimeoutInMillis, 0);
+    }
+
     public KafkaHagridSubscriber(final Properties properties) {
-        this.properties = properties;
+        this(properties, 100, 100);
     }
 
     @Override
     public void open() {
-        this.consumer = new KafkaConsumer<>(this.properties);
+        this.open(new KafkaConsumer<>(this.properties));
+    }
+
+    /**
+     * Opens the subscriber with an already created consumer, e.g. a mock.
+     *
+     * @param consumer The consumer to poll with, its auto commit has to match the properties of this subscriber
+     */
+    void open(final Consumer<String, Packet> consumer) {
+        this.consumer = consumer;
+        this.paused = false;
+        this.pausedTopics.clear();
+        this.subscriptionChanged = true;
     }
 
     @Override
     public void close() {
+        if (this.commitIntervalInMillis > 0) {
+            try {
+                this.commitSync(this.pendingOffsets.keySet());
+            } catch (final RuntimeException ex) {
+                // these records will just be received again
+            }
+            this.pendingOffsets.clear();
+            this.committedOffsets.clear();
+        }
         this.consumer.close();
         this.consumer = null;
     }
@@ -47,44 +208,175 @@ public class KafkaHagridSubscriber implements HagridSubscriber {
 
     @Override
     public void unsubscribe(final HagridTopic<?> topic) {
-        if (!this.topics.containsKey(topic.getPattern())) {
+        if (this.topics.remove(topic.getPattern()) == null) return;
+        this.subscriptionChanged = true;
+    }
+
+    @Override
+    public void subscribe(final HagridTopic<?> topic) {
+        if (this.topics.putIfAbsent(topic.getPattern(), topic) != null) return;
+        this.subscriptionChanged = true;
+    }
+
+    /**
+     * Replaces the subscription of the consumer with one regex, that
+     * matches everything the regex of any subscribed topic matches.
+     */
+    private void applySubscription() {
+        if (!this.subscriptionChanged) return;
+        this.subscriptionChanged = false;
+
+        if (this.topics.isEmpty()) {
+            this.consumer.unsubscribe();
             return;
         }
-        this.topics.remove(topic.getPattern());
 
-        if (this.consumer != null) {
-            this.consumer.unsubscribe();
+        final StringBuilder regex = new StringBuilder();
+        for (final HagridTopic<?> topic : this.topics.values()) {
+            if (regex.length() > 0) regex.append('|');
+            regex.append("(?:").append(topic.getRegexPattern().pattern()).append(')');
+        }
+        this.consumer.subscribe(Pattern.compile(regex.toString()), this.rebalanceListener);
+    }
+
+    @Override
+    public List<Record> poll() {
+        final List<Record> records = new ArrayList<>();
+        this.poll((topic, partition, offset, key, packet, timestamp) ->
+            records.add(new Record(topic, partition, offset, key, packet, timestamp)));
+        return records;
+    }
+
+    @Override
+    public int poll(final RecordHandler handler) {
+        this.applySubscription();
+        this.commitIfDue();
+        if (this.topics.isEmpty()) {
+            // the consumer does not allow polling without any subscription
+            this.pollTimeout.update(0);
+            try {
+                Thread.sleep(this.pollTimeout.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }
+
+        final ConsumerRecords<String, Packet> consumerRecords = this.consumer.poll(Duration.ofMillis(this.pollTimeout.get()));
+
+        for (final TopicPartition partition : consumerRecords.partitions()) {
+            final PendingOffsets pending = this.commitIntervalInMillis > 0
+                ? this.pendingOffsets.computeIfAbsent(partition, p -> new PendingOffsets()) : null;
+
+            for (final ConsumerRecord<String, Packet> consumerRecord : consumerRecords.records(partition)) {
+                final long timestamp = consumerRecord.timestampType() != TimestampType.NO_TIMESTAMP_TYPE
+                    ? consumerRecord.timestamp() : System.currentTimeMillis();
+                // before the handler, as it could already be acknowledged in there
+                if (pending != null) pending.add(consumerRecord.offset());
 
-            for (final HagridTopic<?> value : this.topics.values()) {
-                this.consumer.subscribe(value.getRegexPattern());
+                handler.handle(consumerRecord.topic(), consumerRecord.partition(), consumerRecord.offset(),
+                    consumerRecord.key(), consumerRecord.value(), timestamp);
             }
         }
+
+        if (this.paused || !this.pausedTopics.isEmpty()) {
+            // nothing (or not everything) can be received anyway, but we want to resume as soon as possible
+            this.pollTimeout.reset();
+        } else {
+            this.pollTimeout.update(consumerRecords.count());
+        }
+        return consumerRecords.count();
     }
 
     @Override
-    public void subscribe(final HagridTopic<?> topic) {
-        if (this.topics.containsKey(topic.getPattern())) {
-            return;
+    public void acknowledge(final String topic, final int partition, final long offset) {
+        if (this.commitIntervalInMillis <= 0) return;
+
+        final PendingOffsets pending = this.pendingOffsets.get(new TopicPartition(topic, partition));
+        // the partition could have been revoked in the meantime
+        if (pending != null) pending.acknowledge(offset);
+    }
+
+    private void commitIfDue() {
+        if (this.commitIntervalInMillis <= 0 || this.pendingOffsets.isEmpty()) return;
+        final long now = System.currentTimeMillis();
+        if (now < this.nextCommit) return;
+        this.nextCommit = now + this.commitIntervalInMillis;
+
+        final Map<TopicPartition, OffsetAndMetadata> offsets = this.getCommittableOffsets(this.pendingOffsets.keySet());
+        if (offsets.isEmpty()) return;
+
+        for (final Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+            this.committedOffsets.put(entry.getKey(), entry.getValue().offset());
+        }
+        // the callback is executed by the polling thread during a later poll
+        this.consumer.commitAsync(offsets, (committed, exception) -> {
+            if (exception == null) return;
+            // so that they are committed again with the next interval
+            for (final TopicPartition partition : committed.keySet()) {
+                this.committedOffsets.remove(partition);
+            }
+        });
+    }
+
+    private void commitSync(final Collection<TopicPartition> partitions) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = this.getCommittableOffsets(partitions);
+        if (offsets.isEmpty()) return;
+
+        this.consumer.commitSync(offsets);
+        for (final Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+            this.committedOffsets.put(entry.getKey(), entry.getValue().offset());
         }
-        this.topics.put(topic.getPattern(), topic);
+    }
 
-        if (this.consumer != null) {
-            this.consumer.subscribe(topic.getRegexPattern());
+    /**
+     * @return The offsets of the given partitions, that can be committed and
+     * have not been committed yet.
+     */
+    private Map<TopicPartition, OffsetAndMetadata> getCommittableOffsets(final Collection<TopicPartition> partitions) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (final TopicPartition partition : partitions) {
+            final PendingOffsets pending = this.pendingOffsets.get(partition);
+            if (pending == null) continue;
+
+            final long committable = pending.getCommittable();
+            final Long committed = this.committedOffsets.get(partition);
+            if (committable < 0 || (committed != null && committed == committable)) continue;
+            offsets.put(partition, new OffsetAndMetadata(committable));
         }
+        return offsets;
     }
 
     @Override
-    public List<Record> poll() {
-        final ConsumerRecords<String, Packet> consumerRecords = this.consumer.poll(Duration.ofMillis(100));
+    public void pause() {
+        this.paused = true;
+        this.consumer.pause(this.consumer.assignment());
+    }
 
-        final List<Record> records = new ArrayList<>();
-        for (final ConsumerRecord<String, Packet> consumerRecord : consumerRecords) {
-            final long timestamp = consumerRecord.timestampType() != TimestampType.NO_TIMESTAMP_TYPE
-                ? consumerRecord.timestamp() : System.currentTimeMillis();
-            records.add(new Record(consumerRecord.topic(), consumerRecord.value(), timestamp));
-        }
+    @Override
+    public void resume() {
+        this.paused = false;
+        this.consumer.resume(this.getPartitions(this.consumer.paused(), topic -> !this.pausedTopics.contains(topic)));
+    }
 
-        return records;
+    @Override
+    public void pause(final String topic) {
+        if (!this.pausedTopics.add(topic) || this.paused) return;
+        this.consumer.pause(this.getPartitions(this.consumer.assignment(), topic::equals));
+    }
+
+    @Override
+    public void resume(final String topic) {
+        if (!this.pausedTopics.remove(topic) || this.paused) return;
+        this.consumer.resume(this.getPartitions(this.consumer.paused(), topic::equals));
+    }
+
+    private List<TopicPartition> getPartitions(final Collection<TopicPartition> partitions, final Predicate<String> topicFilter) {
+        final List<TopicPartition> filtered = new ArrayList<>();
+        for (final TopicPartition partition : partitions) {
+            if (topicFilter.test(partition.topic())) filtered.add(partition);
+        }
+        return filtered;
     }
 
 }
@@ -1,5 +1,6 @@
 package dev.volix.rewinside.odyssey.hagrid.kafka;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
 import org.apache.kafka.common.serialization.Deserializer;
@@ -12,7 +13,11 @@ public class KafkaPacketDeserializer implements Deserializer<Packet> {
     @Override
     public Packet deserialize(String topic, byte[] bytes) {
         try {
-            return Packet.parseFrom(bytes);
+            // kafka creates a new array for every record, so the payload of the
+            // packet can point to it instead of being copied into its own array.
+            final CodedInputStream input = CodedInputStream.newInstance(bytes);
+            input.enableAliasing(true);
+            return Packet.parser().parseFrom(input);
         } catch (InvalidProtocolBufferException e) {
             e.printStackTrace();
         }
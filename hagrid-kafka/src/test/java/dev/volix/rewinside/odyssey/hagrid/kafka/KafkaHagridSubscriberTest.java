@@ -0,0 +1,143 @@
+package dev.volix.rewinside.odyssey.hagrid.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.volix.rewinside.odyssey.hagrid.protocol.Packet;
+import dev.volix.rewinside.odyssey.hagrid.serdes.StringHagridSerdes;
+import dev.volix.rewinside.odyssey.hagrid.topic.HagridTopic;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RebalanceInProgressException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Tobias Büser
+ */
+class KafkaHagridSubscriberTest {
+
+    private static final String TOPIC = "volix-party";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+    private static final long COMMIT_INTERVAL_IN_MILLIS = 500;
+
+    @Test
+    void commitsAcknowledgedOffsetsAtInterval() throws InterruptedException {
+        final TestConsumer consumer = new TestConsumer();
+        final KafkaHagridSubscriber subscriber = this.createSubscriber(consumer);
+
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), this.receive(subscriber, consumer, 5));
+        subscriber.acknowledge(TOPIC, 0, 0);
+        subscriber.acknowledge(TOPIC, 0, 2);
+        subscriber.poll((topic, partition, offset, key, packet, timestamp) -> { });
+        // the second record is still being handled
+        assertEquals(1, this.getCommitted(consumer));
+
+        subscriber.acknowledge(TOPIC, 0, 1);
+        subscriber.acknowledge(TOPIC, 0, 3);
+        subscriber.acknowledge(TOPIC, 0, 4);
+        subscriber.poll((topic, partition, offset, key, packet, timestamp) -> { });
+        assertEquals(1, this.getCommitted(consumer));
+
+        Thread.sleep(COMMIT_INTERVAL_IN_MILLIS + 100);
+        subscriber.poll((topic, partition, offset, key, packet, timestamp) -> { });
+        assertEquals(5, this.getCommitted(consumer));
+    }
+
+    @Test
+    void commitsAcknowledgedOffsetsOnRevoke() {
+        final TestConsumer consumer = new TestConsumer();
+        final KafkaHagridSubscriber subscriber = this.createSubscriber(consumer);
+
+        this.receive(subscriber, consumer, 3);
+        subscriber.acknowledge(TOPIC, 0, 0);
+        subscriber.acknowledge(TOPIC, 0, 1);
+
+        consumer.rebalanceListener.onPartitionsRevoked(Collections.singleton(PARTITION));
+        assertEquals(2, this.getCommitted(consumer));
+
+        // the next owner receives the third record again, so it must not be committed anymore
+        subscriber.acknowledge(TOPIC, 0, 2);
+        subscriber.poll((topic, partition, offset, key, packet, timestamp) -> { });
+        assertEquals(2, this.getCommitted(consumer));
+    }
+
+    @Test
+    void keepsPollingIfCommitOnRevokeFails() {
+        final TestConsumer consumer = new TestConsumer();
+        final KafkaHagridSubscriber subscriber = this.createSubscriber(consumer);
+
+        this.receive(subscriber, consumer, 3);
+        subscriber.acknowledge(TOPIC, 0, 0);
+        consumer.failCommits = true;
+
+        consumer.rebalanceListener.onPartitionsRevoked(Collections.singleton(PARTITION));
+        assertEquals(-1, this.getCommitted(consumer));
+    }
+
+    private KafkaHagridSubscriber createSubscriber(final TestConsumer consumer) {
+        final KafkaHagridSubscriber subscriber = new KafkaHagridSubscriber(new Properties(), 1, 1, COMMIT_INTERVAL_IN_MILLIS);
+        subscriber.open(consumer);
+        subscriber.subscribe(new HagridTopic<>(TOPIC, new StringHagridSerdes()));
+
+        // applies the subscription, so that the partition can be assigned
+        subscriber.poll((topic, partition, offset, key, packet, timestamp) -> { });
+        consumer.rebalance(Collections.singletonList(PARTITION));
+        consumer.updateBeginningOffsets(Collections.singletonMap(PARTITION, 0L));
+        return subscriber;
+    }
+
+    /**
+     * @return The offsets of the received records
+     */
+    private List<Long> receive(final KafkaHagridSubscriber subscriber, final TestConsumer consumer, final int amount) {
+        for (int i = 0; i < amount; i++) {
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, "key", Packet.getDefaultInstance()));
+        }
+
+        final List<Long> offsets = new ArrayList<>();
+        subscriber.poll((topic, partition, offset, key, packet, timestamp) -> offsets.add(offset));
+        return offsets;
+    }
+
+    private long getCommitted(final TestConsumer consumer) {
+        final OffsetAndMetadata committed = consumer.committed(Collections.singleton(PARTITION)).get(PARTITION);
+        return committed == null ? -1 : committed.offset();
+    }
+
+    /**
+     * Keeps the rebalance listener, so that the tests can revoke partitions like the group coordinator would.
+     */
+    private static class TestConsumer extends MockConsumer<String, Packet> {
+
+        private ConsumerRebalanceListener rebalanceListener;
+        private boolean failCommits = false;
+
+        private TestConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void subscribe(final Pattern pattern, final ConsumerRebalanceListener listener) {
+            this.rebalanceListener = listener;
+            super.subscribe(pattern, listener);
+        }
+
+        @Override
+        public synchronized void commitSync(final Map<TopicPartition, OffsetAndMetadata> offsets) {
+            if (this.failCommits) throw new RebalanceInProgressException("rebalance in progress");
+            super.commitSync(offsets);
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package dev.volix.rewinside.odyssey.hagrid.micrometer;
+
+import dev.volix.rewinside.odyssey.hagrid.ConnectionHandler;
+import dev.volix.rewinside.odyssey.hagrid.listener.Direction;
+import dev.volix.rewinside.odyssey.hagrid.listener.HagridListener;
+import dev.volix.rewinside.odyssey.hagrid.metrics.HagridMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Records the {@link HagridMetrics} into a Micrometer {@link MeterRegistry}.
+ * <p>
+ * The meters of a topic are created with the first packet of that topic and are
+ * then looked up by the topic name only, so that recording does not allocate any tags.
+ * Keep in mind that every concrete topic name gets its own meters.
+ *
+ * @author Tobias Büser
+ */
+public class MicrometerHagridMetrics implements HagridMetrics {
+
+    private static final String PREFIX = "hagrid.";
+
+    private final MeterRegistry registry;
+    private final Tags commonTags;
+
+    private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+
+    /**
+     * Tagged with the topic pattern of the listeners, so they are kept apart from the topic meters.
+     */
+    private final Map<String, Counter> listenerTimeouts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connectionStatus = new AtomicInteger();
+    private final Counter reconnects;
+
+    /**
+     * @param registry   The registry to register the meters at
+     * @param commonTags Tags that are added to every meter, e.g. the name of the service
+     */
+    public MicrometerHagridMetrics(final MeterRegistry registry, final Iterable<Tag> commonTags) {
+        this.registry = registry;
+        this.commonTags = Tags.of(commonTags);
+
+        this.reconnects = Counter.builder(PREFIX + "reconnects")
+            .description("Attempts to reconnect to the broker")
+            .tags(this.commonTags)
+            .register(registry);
+        Gauge.builder(PREFIX + "connection.status", this.connectionStatus, AtomicInteger::get)
+            .description("The ordinal of the current connection status")
+            .tags(this.commonTags)
+            .register(registry);
+    }
+
+    public MicrometerHagridMetrics(final MeterRegistry registry) {
+        this(registry, Tags.empty());
+    }
+
+    @Override
+    public void packetSent(final String topic, final long serializationNanos) {
+        final TopicMeters meters = this.getMeters(topic);
+        meters.sent.increment();
+        meters.serialization.record(serializationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void packetSendFailed(final String topic) {
+        this.getMeters(topic).sendFailed.increment();
+    }
+
+    @Override
+    public void packetReceived(final String topic, final long decodeNanos) {
+        final TopicMeters meters = this.getMeters(topic);
+        meters.received.increment();
+        meters.deserialization.record(decodeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void packetSkipped(final String topic) {
+        this.getMeters(topic).skipped.increment();
+    }
+
+    @Override
+    public void listenerExecuted(final String topic, final Direction direction, final long durationNanos, final boolean failed) {
+        this.getMeters(topic).listeners[direction.ordinal() * 2 + (failed ? 1 : 0)]
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void slowListener(final String topic, final HagridListener listener, final long durationNanos) {
+        this.getMeters(topic).slowListeners.increment();
+    }
+
+    @Override
+    public void listenerTimedOut(final String pattern) {
+        this.listenerTimeouts.computeIfAbsent(pattern, name -> Counter.builder(PREFIX + "listener.timeouts")
+            .description("Listeners that got unregistered because they timed out")
+            .tags(this.commonTags).tag("pattern", name)
+            .register(this.registry)).increment();
+    }
+
+    @Override
+    public void requestTimedOut(final String topic) {
+        this.getMeters(topic).requestTimeouts.increment();
+    }
+
+    @Override
+    public void connectionStatusChanged(final ConnectionHandler.Status status) {
+        this.connectionStatus.set(status.ordinal());
+    }
+
+    @Override
+    public void reconnectAttempted() {
+        this.reconnects.increment();
+    }
+
+    @Override
+    public void registerQueue(final String name, final IntSupplier size) {
+        // the supplier is usually a lambda, which would be collected with a weak reference
+        Gauge.builder(PREFIX + "queue.size", size, IntSupplier::getAsInt)
+            .strongReference(true)
+            .description("The amount of elements waiting in the queue")
+            .tags(this.commonTags).tag("queue", name)
+            .register(this.registry);
+    }
+
+    private TopicMeters getMeters(final String topic) {
+        final TopicMeters meters = this.topicMeters.get(topic);
+        if (meters != null) return meters;
+
+        return this.topicMeters.computeIfAbsent(topic, name -> new TopicMeters(this.registry, this.commonTags.and("topic", name)));
+    }
+
+    private static class TopicMeters {
+
+        private final Counter sent;
+        private final Counter sendFailed;
+        private final Timer serialization;
+
+        private final Counter received;
+        private final Counter skipped;
+        private final Timer deserialization;
+
+        /**
+         * The execution time of the listeners, by direction and by whether they failed.
+         */
+        private final Timer[] listeners;
+        private final Counter slowListeners;
+        private final Counter requestTimeouts;
+
+        private TopicMeters(final MeterRegistry registry, final Tags tags) {
+            this.sent = Counter.builder(PREFIX + "packets.sent")
+                .description("Packets that got acknowledged by the broker")
+                .tags(tags).register(registry);
+            this.sendFailed = Counter.builder(PREFIX + "packets.send.failed")
+                .description("Packets that could not be serialized or sent")
+                .tags(tags).register(registry);
+            this.serialization = Timer.builder(PREFIX + "serialization")
+                .description("Time to serialize a packet")
+                .tags(tags).register(registry);
+
+            this.received = Counter.builder(PREFIX + "packets.received")
+                .description("Packets that got received and decoded")
+                .tags(tags).register(registry);
+            this.skipped = Counter.builder(PREFIX + "packets.skipped")
+                .description("Received packets that got skipped, e.g. because they are stale")
+                .tags(tags).register(registry);
+            this.deserialization = Timer.builder(PREFIX + "deserialization")
+                .description("Time to decode and deserialize a packet")
+                .tags(tags).register(registry);
+
+            final Direction[] directions = Direction.values();
+            this.listeners = new Timer[directions.length * 2];
+            for (final Direction direction : directions) {
+                for (int failed = 0; failed < 2; failed++) {
+                    this.listeners[direction.ordinal() * 2 + failed] = Timer.builder(PREFIX + "listener.duration")
+                        .description("Time to execute a listener")
+                        .tags(tags)
+                        .tag("direction", direction.name().toLowerCase())
+                        .tag("outcome", failed == 1 ? "failure" : "success")
+                        .register(registry);
+                }
+            }
+            this.slowListeners = Counter.builder(PREFIX + "listener.slow")
+                .description("Listener executions that took longer than the slow listener threshold")
+                .tags(tags).register(registry);
+            this.requestTimeouts = Counter.builder(PREFIX + "request.timeouts")
+                .description("Requests that did not get a response in time")
+                .tags(tags).register(registry);
+        }
+
+    }
+
+}